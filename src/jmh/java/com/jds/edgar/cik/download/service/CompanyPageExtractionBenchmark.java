@@ -0,0 +1,74 @@
+package com.jds.edgar.cik.download.service;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the byte extractor of the SIC and sector with the Jsoup DOM it replaces, on a generated company page with
+ * a header, the company information and a table of filings like the real one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompanyPageExtractionBenchmark {
+
+    private static final String URL = "https://www.sec.gov/cgi-bin/browse-edgar?CIK=320193";
+
+    @Param("40")
+    private int filings;
+
+    private final CompanyPageExtractor extractor = new CompanyPageExtractor();
+    private byte[] page;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("""
+                <!DOCTYPE html PUBLIC "-//W3C//DTD XHTML 1.0 Transitional//EN" "http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd">
+                <html xmlns="http://www.w3.org/1999/xhtml" xml:lang="en" lang="en">
+                <head><title>EDGAR Search Results</title><link rel="stylesheet" type="text/css" href="/cgi-bin/browse-edgar.css" /></head>
+                <body style="margin: 0">
+                <div id="headerBanner"><a href="/index.htm"><img src="/images/bannerTitle.gif" alt="SEC Home" /></a></div>
+                <div id="contentDiv">
+                <div class="mailer">Mailing Address<span class="mailerAddress">ONE APPLE PARK WAY<br />CUPERTINO CA 95014</span></div>
+                <div class="companyInfo">
+                <span class="companyName">Apple Inc. <acronym title="Central Index Key">CIK</acronym>#: <a href="/cgi-bin/browse-edgar?action=getcompany&amp;CIK=0000320193">0000320193 (see all company filings)</a></span>
+                <p class="identInfo"><acronym title="Standard Industrial Code">SIC</acronym>: <a href="/cgi-bin/browse-edgar?action=getcompany&amp;SIC=3571">3571</a> - ELECTRONIC COMPUTERS<br />State location: <a href="/cgi-bin/browse-edgar?action=getcompany&amp;State=CA">CA</a> | State of Inc.: <strong>CA</strong> | Fiscal Year End: 0930<br />(Office of Technology)</p>
+                </div>
+                <table class="tableFile2" summary="Results">
+                <tr><th scope="col">Filings</th><th scope="col">Format</th><th scope="col">Description</th><th scope="col">Filing Date</th><th scope="col">File/Film Number</th></tr>
+                """);
+        for (int i = 0; i < filings; i++) {
+            builder.append("<tr><td nowrap=\"nowrap\">10-Q</td><td nowrap=\"nowrap\"><a href=\"/Archives/edgar/data/320193/0000320193230000")
+                    .append(i).append("-index.htm\" id=\"documentsbutton\">&nbsp;Documents</a></td>")
+                    .append("<td class=\"small\">Quarterly report [Sections 13 or 15(d)]<br />Acc-no: 0000320193-23-0000")
+                    .append(i).append("&nbsp;(34 Act)&nbsp; Size: 5 MB</td><td>2023-08-04</td>")
+                    .append("<td nowrap=\"nowrap\"><a href=\"/cgi-bin/browse-edgar?action=getcompany&amp;filenum=001-36743\">001-36743</a><br>231")
+                    .append(i).append("</td></tr>\n");
+        }
+        page = builder.append("</table>\n</div>\n</body>\n</html>\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void jsoup(Blackhole blackhole) throws IOException {
+        blackhole.consume(EdgarSectorEnrichServiceImpl.parseEnrichedData(
+                Jsoup.parse(new ByteArrayInputStream(page), null, URL), "320193"));
+    }
+
+    @Benchmark
+    public void extractor(Blackhole blackhole) throws IOException {
+        blackhole.consume(extractor.extract(page, page.length));
+    }
+}
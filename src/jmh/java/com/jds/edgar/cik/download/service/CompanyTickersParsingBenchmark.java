@@ -0,0 +1,69 @@
+package com.jds.edgar.cik.download.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming parse of {@code company_tickers_exchange.json} with the untyped tree it replaces, on a
+ * generated file with as many rows as the real one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompanyTickersParsingBenchmark {
+
+    private static final String[] EXCHANGES = {"Nasdaq", "NYSE", "OTC", "CBOE", null};
+
+    @Param("10000")
+    private int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CompanyTickersParser parser = new CompanyTickersParser(objectMapper);
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("{\"fields\":[\"cik\",\"name\",\"ticker\",\"exchange\"],\"data\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            String exchange = EXCHANGES[i % EXCHANGES.length];
+            builder.append('[').append(1_000_000 + i)
+                    .append(",\"Company ").append(i).append(" Inc.\",\"T").append(i).append("\",")
+                    .append(exchange == null ? "null" : "\"" + exchange + "\"").append(']');
+        }
+        json = builder.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void treeModel(Blackhole blackhole) throws IOException {
+        LinkedHashMap<String, Object> data = new ObjectMapper().readValue(json, LinkedHashMap.class);
+        for (List<Object> stockValues : (List<List<Object>>) data.get("data")) {
+            blackhole.consume(Long.valueOf(String.valueOf(stockValues.get(0))));
+            blackhole.consume(stockValues.get(1));
+            blackhole.consume(stockValues.get(2));
+            blackhole.consume(stockValues.get(3));
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        parser.parseCompanyTickersExchange(json, blackhole::consume);
+    }
+}
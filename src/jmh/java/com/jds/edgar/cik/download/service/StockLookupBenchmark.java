@@ -0,0 +1,87 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.CikConversionApplication;
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.repository.StockRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares stock lookups answered by the in-memory {@link StockIndex} with the JPA queries they replace.
+ * Runs against the database configured in {@code application.properties}, with the scheduled jobs disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StockLookupBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private StockRepository stockRepository;
+    private StockIndex index;
+    private long[] ciks;
+    private String[] tickers;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(CikConversionApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("edgar.use-tickers=false", "edgar.use-tickers-exchange=false", "edgar.use-sector-enrich=false")
+                .run();
+        stockRepository = context.getBean(StockRepository.class);
+        index = context.getBean(StockIndexServiceImpl.class).rebuild();
+
+        List<Stock> stocks = stockRepository.findAll();
+        if (stocks.isEmpty()) {
+            throw new IllegalStateException("The stocks table is empty, run the CIK download first");
+        }
+        // findByCik fails for CIKs with several tickers, so only the others are looked up by CIK
+        ciks = stocks.stream()
+                .collect(Collectors.groupingBy(Stock::getCik, Collectors.counting()))
+                .entrySet().stream()
+                .filter(entry -> entry.getValue() == 1)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+        tickers = stocks.stream().map(Stock::getTicker).toArray(String[]::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Stock> indexFindByTicker() {
+        return index.findByTicker(tickers[ThreadLocalRandom.current().nextInt(tickers.length)]);
+    }
+
+    @Benchmark
+    public Optional<Stock> jpaFindByTicker() {
+        return stockRepository.findByTicker(tickers[ThreadLocalRandom.current().nextInt(tickers.length)]);
+    }
+
+    @Benchmark
+    public Optional<Stock> indexFindByCik() {
+        return index.findByCik(ciks[ThreadLocalRandom.current().nextInt(ciks.length)]);
+    }
+
+    @Benchmark
+    public Optional<Stock> jpaFindByCik() {
+        return stockRepository.findByCik(ciks[ThreadLocalRandom.current().nextInt(ciks.length)]);
+    }
+}
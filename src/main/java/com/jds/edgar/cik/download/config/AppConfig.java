@@ -1,12 +1,15 @@
 package com.jds.edgar.cik.download.config;
 
+import com.jds.edgar.cik.download.service.SecRateLimiter;
+import com.jds.edgar.cik.download.store.HttpResponseCache;
+import com.jds.edgar.cik.download.store.HttpResponseCacheInterceptor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Collections;
+import java.util.List;
 
 @Configuration
 @ConfigurationProperties(prefix = "app")
@@ -16,7 +19,7 @@ public class AppConfig {
     private String userEmail;
 
     @Bean
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(HttpResponseCache httpResponseCache, SecRateLimiter secRateLimiter) {
         RestTemplate restTemplate = new RestTemplate();
 
         ClientHttpRequestInterceptor userAgentInterceptor = (request, body, execution) -> {
@@ -27,7 +30,7 @@ public class AppConfig {
             return execution.execute(request, body);
         };
 
-        restTemplate.setInterceptors(Collections.singletonList(userAgentInterceptor));
+        restTemplate.setInterceptors(List.of(userAgentInterceptor, new HttpResponseCacheInterceptor(httpResponseCache, secRateLimiter)));
 
         return restTemplate;
     }
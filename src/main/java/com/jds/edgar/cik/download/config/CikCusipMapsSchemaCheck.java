@@ -0,0 +1,32 @@
+package com.jds.edgar.cik.download.config;
+
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Makes sure {@code cik_cusip_maps} has its unique index on ({@code cik}, {@code cusip8}), the mapping upsert relies
+ * on it. Duplicate mappings left by older loaders are deleted first, keeping the first row of each pair. Rows with a
+ * null CIK or CUSIP are left alone, the index does not consider them duplicates either.
+ */
+@Component
+public class CikCusipMapsSchemaCheck extends UniqueIndexSchemaCheck {
+
+    static final String INDEX_NAME = "uk_cik_cusip_maps_cik_cusip8";
+    static final String DELETE_DUPLICATES_SQL = "DELETE FROM cik_cusip_maps WHERE cik IS NOT NULL AND cusip8 IS NOT NULL AND id NOT IN " +
+            "(SELECT id FROM (SELECT MIN(id) AS id FROM cik_cusip_maps WHERE cik IS NOT NULL AND cusip8 IS NOT NULL " +
+            "GROUP BY cik, cusip8) first_rows)";
+    static final String CREATE_INDEX_SQL = "CREATE UNIQUE INDEX " + INDEX_NAME + " ON cik_cusip_maps (cik, cusip8)";
+
+    public CikCusipMapsSchemaCheck(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate, "cik_cusip_maps", INDEX_NAME, Set.of("cik", "cusip8"), DELETE_DUPLICATES_SQL, CREATE_INDEX_SQL);
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void checkCikCusipIndex() {
+        checkUniqueIndex();
+    }
+}
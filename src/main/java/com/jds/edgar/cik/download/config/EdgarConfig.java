@@ -29,4 +29,56 @@ public class EdgarConfig {
     private Boolean useEnrichSector;
 
     private Long retryDelay = 5000L;
-}
\ No newline at end of file
+
+    private Integer fullIndexBatchSize = 5000;
+
+    private Integer fullIndexConcurrency = 4;
+
+    private Integer fullIndexPageSize = 10000;
+
+    private Integer maxRequestsPerSecond = 10;
+
+    private Integer filingsDownloadConcurrency = 8;
+
+    private String filingsStore = "folder";
+
+    private String filingsSegmentsFolder = "filings-segments";
+
+    private Long filingsSegmentSize = 1024L * 1024 * 1024;
+
+    private String filingsManifest = "filings-manifest.dat";
+
+    private Integer cusipExtractionConcurrency = Runtime.getRuntime().availableProcessors();
+
+    private Long stockCacheSize = 100_000L;
+
+    private Long stockCacheTtl = 20 * 60 * 1000L;
+
+    private String snapshotFolder = "snapshots";
+
+    private Boolean snapshotIncludeFullIndex = false;
+
+    private Double exchangeSyncMaxDeleteRatio = 0.1;
+
+    private Integer sectorEnrichBatchSize = 50;
+
+    private Integer sectorEnrichConcurrency = 4;
+
+    private String submissionsArchive = "submissions.zip";
+
+    private Boolean httpCacheEnabled = true;
+
+    private Boolean httpCacheOffline = false;
+
+    private String httpCacheFolder = "http-cache";
+
+    private Long httpCacheMaxSize = 5L * 1024 * 1024 * 1024;
+
+    private Long httpCacheCurrentIndexTtl = 6 * 60 * 60 * 1000L;
+
+    private Long httpCacheTickersTtl = 60 * 60 * 1000L;
+
+    private Long httpCacheCompanyPageTtl = 7 * 24 * 60 * 60 * 1000L;
+
+    private Long httpCacheDefaultTtl = 24 * 60 * 60 * 1000L;
+}
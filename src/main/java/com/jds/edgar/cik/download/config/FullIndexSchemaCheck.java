@@ -0,0 +1,30 @@
+package com.jds.edgar.cik.download.config;
+
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Makes sure {@code full_index} has its unique index on {@code filename}, the full index upsert relies on it.
+ * Duplicate filenames left by older versions are deleted first, keeping the first row of each filename.
+ */
+@Component
+public class FullIndexSchemaCheck extends UniqueIndexSchemaCheck {
+
+    static final String INDEX_NAME = "uk_full_index_filename";
+    static final String DELETE_DUPLICATES_SQL = "DELETE FROM full_index WHERE filename IS NOT NULL AND id NOT IN " +
+            "(SELECT id FROM (SELECT MIN(id) AS id FROM full_index GROUP BY filename) first_rows)";
+    static final String CREATE_INDEX_SQL = "CREATE UNIQUE INDEX " + INDEX_NAME + " ON full_index (filename)";
+
+    public FullIndexSchemaCheck(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate, "full_index", INDEX_NAME, Set.of("filename"), DELETE_DUPLICATES_SQL, CREATE_INDEX_SQL);
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void checkFilenameIndex() {
+        checkUniqueIndex();
+    }
+}
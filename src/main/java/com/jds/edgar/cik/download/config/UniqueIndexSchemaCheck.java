@@ -0,0 +1,81 @@
+package com.jds.edgar.cik.download.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes sure a table has the unique index its upsert relies on.
+ * <p>
+ * {@code ddl-auto=update} silently fails to add the constraint to a table that already holds duplicates, which would
+ * make every load insert the rows again. In that case the duplicates are deleted and the index is created. The
+ * application does not start if the index is still missing.
+ */
+@Slf4j
+abstract class UniqueIndexSchemaCheck {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String indexName;
+    private final Set<String> columns;
+    private final String deleteDuplicatesSql;
+    private final String createIndexSql;
+
+    UniqueIndexSchemaCheck(JdbcTemplate jdbcTemplate, String table, String indexName, Set<String> columns,
+                           String deleteDuplicatesSql, String createIndexSql) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.indexName = indexName;
+        this.columns = columns;
+        this.deleteDuplicatesSql = deleteDuplicatesSql;
+        this.createIndexSql = createIndexSql;
+    }
+
+    void checkUniqueIndex() {
+        if (hasUniqueIndex()) {
+            return;
+        }
+
+        log.warn("{} has no unique index on {}, removing the duplicates and creating {}", table, columns, indexName);
+        try {
+            int deleted = jdbcTemplate.update(deleteDuplicatesSql);
+            jdbcTemplate.execute(createIndexSql);
+            log.warn("Deleted {} duplicate {} rows and created {}", deleted, table, indexName);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Could not create the unique index " + indexName + " on " + table + " " + columns, e);
+        }
+
+        if (!hasUniqueIndex()) {
+            throw new IllegalStateException(table + " has no unique index on " + columns + ", loads would insert duplicates");
+        }
+    }
+
+    private boolean hasUniqueIndex() {
+        Boolean found = jdbcTemplate.execute((ConnectionCallback<Boolean>) this::hasUniqueIndex);
+        return Boolean.TRUE.equals(found);
+    }
+
+    private boolean hasUniqueIndex(Connection connection) throws SQLException {
+        Map<String, Set<String>> columnsByIndex = new HashMap<>();
+        try (ResultSet indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(), connection.getSchema(), table, true, false)) {
+            while (indexes.next()) {
+                String name = indexes.getString("INDEX_NAME");
+                String column = indexes.getString("COLUMN_NAME");
+                if (name != null && column != null) {
+                    columnsByIndex.computeIfAbsent(name, key -> new HashSet<>()).add(column.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return columnsByIndex.values().stream().anyMatch(columns::equals);
+    }
+}
@@ -1,25 +1,53 @@
 package com.jds.edgar.cik.download.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.jds.edgar.cik.download.model.CusipExtractionResult;
+import com.jds.edgar.cik.download.model.FilingDownloadProgress;
+import com.jds.edgar.cik.download.model.FilingDownloadResult;
+import com.jds.edgar.cik.download.model.FilingsDownloadReport;
+import com.jds.edgar.cik.download.model.LookupCacheStats;
+import com.jds.edgar.cik.download.model.SectorEnrichmentResult;
 import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockResolveRequest;
 import com.jds.edgar.cik.download.repository.FullIndexRepository;
 import com.jds.edgar.cik.download.repository.StockRepository;
+import com.jds.edgar.cik.download.service.CusipExtractionServiceImpl;
+import com.jds.edgar.cik.download.service.CusipMappingLoaderServiceImpl;
 import com.jds.edgar.cik.download.service.EdgarSectorEnrichServiceImpl;
+import com.jds.edgar.cik.download.service.FilingStoreMigrationServiceImpl;
 import com.jds.edgar.cik.download.service.FilingsDownloadServiceImpl;
+import com.jds.edgar.cik.download.service.SnapshotExportServiceImpl;
 import com.jds.edgar.cik.download.service.StockEnrichmentServiceImpl;
+import com.jds.edgar.cik.download.service.StockExportServiceImpl;
+import com.jds.edgar.cik.download.service.StockIndexServiceImpl;
+import com.jds.edgar.cik.download.service.StockLookupCache;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequiredArgsConstructor
@@ -44,20 +72,77 @@ public class StockController {
     @NonNull
     private FilingsDownloadServiceImpl filingsDownloadService;
 
+    @NonNull
+    private FilingStoreMigrationServiceImpl filingStoreMigrationService;
+
+    @NonNull
+    private CusipExtractionServiceImpl cusipExtractionService;
+
+    @NonNull
+    private CusipMappingLoaderServiceImpl cusipMappingLoaderService;
+
+    @NonNull
+    private StockLookupCache stockLookupCache;
+
+    @NonNull
+    private StockIndexServiceImpl stockIndexService;
+
+    @NonNull
+    private ObjectMapper objectMapper;
+
+    @NonNull
+    private StockExportServiceImpl stockExportService;
+
+    @NonNull
+    private SnapshotExportServiceImpl snapshotExportService;
+
     @GetMapping("/cik/{cik}")
     public ResponseEntity<Stock> getByCik(@PathVariable Long cik) {
-        Optional<Stock> stockCikOptional = stockCikRepository.findByCik(cik);
+        Optional<Stock> stockCikOptional = stockIndexService.findByCik(cik);
         return stockCikOptional.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
     @GetMapping("/ticker/{ticker}")
     public ResponseEntity<Stock> getByTicker(@PathVariable String ticker) {
-        Optional<Stock> stockCikOptional = stockCikRepository.findByTicker(ticker);
+        Optional<Stock> stockCikOptional = stockIndexService.findByTicker(ticker);
         return stockCikOptional.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
+    @GetMapping("/cusip/{cusip}")
+    public ResponseEntity<Stock> getByCusip(@PathVariable String cusip) {
+        Optional<Stock> stockCikOptional = stockIndexService.findByCusip(cusip.toUpperCase());
+        return stockCikOptional.map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    @PostMapping(value = "/resolve", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> resolve(@RequestBody StockResolveRequest request) {
+        if (request.size() > StockIndexServiceImpl.MAX_RESOLVE_IDENTIFIERS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                stockIndexService.resolve(request, resolution -> {
+                    try {
+                        writer.write(resolution);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.flush();
+                outputStream.write('\n');
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<LookupCacheStats>> getCacheStats() {
+        return ResponseEntity.ok(stockLookupCache.getStats());
+    }
+
     @GetMapping
     public ResponseEntity<List<Stock>> getByFilter(
             @RequestParam(value = "sector", required = false) String sector,
@@ -84,21 +169,61 @@ public class StockController {
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
+    @PostMapping("/enrich/sector/batch")
+    public ResponseEntity<SectorEnrichmentResult> enrichNextSectorBatch() {
+        return ResponseEntity.ok(edgarSectorEnrichService.enrichNextBatch());
+    }
+
+    @PostMapping("/enrich/sector/submissions")
+    public ResponseEntity<SectorEnrichmentResult> enrichSectorsFromSubmissions() throws IOException {
+        return ResponseEntity.ok(edgarSectorEnrichService.enrichFromSubmissionsArchive());
+    }
+
     @GetMapping("/export/csv")
-    public void exportToCSV(HttpServletResponse response) throws IOException {
+    public void exportToCSV(@RequestParam(value = "columns", required = false) List<String> columns,
+                            @RequestParam(value = "sector", required = false) String sector,
+                            @RequestParam(value = "sic", required = false) String sic,
+                            @RequestParam(value = "exchange", required = false) String exchange,
+                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                            HttpServletResponse response) throws IOException {
+        List<StockExportServiceImpl.Column> exportColumns = StockExportServiceImpl.parseColumns(columns);
         response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
         response.setHeader("Content-Disposition", "attachment; filename=stocks.csv");
 
-        try (PrintWriter writer = response.getWriter()) {
-            edgarSectorEnrichService.exportToCSV(writer);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        OutputStream outputStream = response.getOutputStream();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            // Sync flush lets the header row reach the client before the first database row
+            outputStream = new GZIPOutputStream(outputStream, 8192, true);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024)) {
+            stockExportService.exportCsv(exportColumns, sector, sic, exchange, writer);
         }
     }
 
+    @GetMapping("/export/snapshot/{table}")
+    public ResponseEntity<Resource> downloadSnapshot(@PathVariable String table) {
+        return snapshotExportService.snapshotFile(table)
+                .<ResponseEntity<Resource>>map(file -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("application/vnd.apache.arrow.file"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                        .body(new FileSystemResource(file)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    @PostMapping("/export/snapshot")
+    public ResponseEntity<String> exportSnapshots() {
+        snapshotExportService.requestRebuild("request");
+        return ResponseEntity.ok("Snapshot export initiated.");
+    }
+
     @GetMapping("/enrich/cusip")
-    public ResponseEntity<Void> enrichStocksWithCusip() {
+    public ResponseEntity<String> enrichStocksWithCusip() {
         try {
-            stockEnrichmentService.enrichStockWithCusips();
-            return ResponseEntity.ok().build();
+            int updated = stockEnrichmentService.enrichStockWithCusips();
+            return ResponseEntity.ok("Updated the CUSIP of " + updated + " stocks.");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -108,22 +233,52 @@ public class StockController {
     public ResponseEntity<Void> enrichFromFilings(@RequestParam(value = "filingTypes") String filingTypes) {
         try {
             List<String> filingTypesList = Arrays.asList(filingTypes.split(","));
-            fullIndexDownloadService.processFillings(filingTypesList);
+            cusipMappingLoaderService.loadMappings(filingTypesList);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @PostMapping("/enrich/cusip/extract")
+    public ResponseEntity<CusipExtractionResult> extractCusipsFromFilings(
+            @RequestParam(value = "formTypes", required = false) List<String> formTypes) {
+        return ResponseEntity.ok(cusipExtractionService.extractFromFilings(formTypes));
+    }
+
     @PostMapping("/download/{filingType}")
-    public ResponseEntity<String> downloadFilingsOfType(@PathVariable String filingType) {
-        String result = filingsDownloadService.downloadFilingsOfType(filingType);
+    public ResponseEntity<FilingDownloadResult> downloadFilingsOfType(@PathVariable String filingType) {
+        FilingDownloadResult result = filingsDownloadService.downloadFilingsOfType(filingType);
         return new ResponseEntity<>(result, HttpStatus.OK);
     }
 
+    @GetMapping("/download/progress")
+    public ResponseEntity<FilingDownloadProgress> getDownloadProgress() {
+        return ResponseEntity.ok(filingsDownloadService.getDownloadProgress());
+    }
+
+    @PostMapping("/filings/migrate")
+    public ResponseEntity<String> migrateFilingsFolder() {
+        try {
+            return ResponseEntity.ok(filingStoreMigrationService.migrateFolderToSegments());
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        }
+    }
+
+    @PostMapping("/filings/manifest/reconcile")
+    public ResponseEntity<String> reconcileFilingManifest() {
+        try {
+            int filings = filingsDownloadService.reconcileFilingManifest();
+            return ResponseEntity.ok("Filings manifest rebuilt with " + filings + " filings.");
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        }
+    }
+
     @PostMapping("/download/forms13")
-    public ResponseEntity<String> downloadFilingsOfType13() {
-        String result = filingsDownloadService.downloadFilingsOfType13();
+    public ResponseEntity<FilingsDownloadReport> downloadFilingsOfType13() {
+        FilingsDownloadReport result = filingsDownloadService.downloadFilingsOfType13();
         return new ResponseEntity<>(result, HttpStatus.OK);
     }
 
@@ -0,0 +1,28 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Body of a cached HTTP response, stored as received, with the response headers needed to read it again. The body
+ * stays readable until the response is closed, even if the cache evicts or replaces the entry in the meantime.
+ */
+@Value
+@Builder
+public class CachedResponse implements Closeable {
+    String url;
+    InputStream body;
+    long size;
+    long fetchedAt;
+    Map<String, String> headers;
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
@@ -8,7 +8,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "cik_cusip_maps")
+@Table(name = "cik_cusip_maps",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cik_cusip_maps_cik_cusip8", columnNames = {"cik", "cusip8"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
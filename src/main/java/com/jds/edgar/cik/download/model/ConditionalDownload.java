@@ -0,0 +1,16 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Body of a download that changed since the last run, with the validators to send on the next one.
+ */
+@Value
+@Builder
+public class ConditionalDownload {
+    byte[] body;
+    String etag;
+    String lastModified;
+    String contentHash;
+}
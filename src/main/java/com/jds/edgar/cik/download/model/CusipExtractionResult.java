@@ -0,0 +1,21 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Outcome of scanning the downloaded filings of some form types for CUSIPs.
+ */
+@Value
+@Builder
+public class CusipExtractionResult {
+    List<String> formTypes;
+    long filingsScanned;
+    long filingsMatched;
+    long failedFilings;
+    // Distinct CIK and CUSIP pairs written to cik_cusip_maps
+    long mappingsStored;
+    long durationMillis;
+}
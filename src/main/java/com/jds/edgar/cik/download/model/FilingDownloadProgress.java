@@ -0,0 +1,23 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of the filings download engine, shared by every download job of the process.
+ */
+@Getter
+public class FilingDownloadProgress {
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong done = new AtomicLong();
+    private final AtomicLong existing = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Override
+    public String toString() {
+        return String.format("queued: %d, in flight: %d, done: %d, existing: %d, failed: %d",
+                queued.get(), inFlight.get(), done.get(), existing.get(), failed.get());
+    }
+}
@@ -0,0 +1,19 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Outcome of downloading the filings of one form type.
+ */
+@Value
+@Builder
+public class FilingDownloadResult {
+    String formType;
+    long newFilings;
+    long existingFilings;
+    long failedFilings;
+    // Uncompressed size of the new filings
+    long bytes;
+    long durationMillis;
+}
@@ -0,0 +1,15 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Value;
+
+/**
+ * Read-only projection of a {@link FullIndex} row, used to walk the index without growing the persistence context.
+ */
+@Value
+public class FilingIndexEntry {
+    Long id;
+    Long cik;
+    String formType;
+    String dateFiled;
+    String filename;
+}
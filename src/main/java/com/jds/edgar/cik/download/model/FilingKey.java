@@ -0,0 +1,39 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Value;
+
+/**
+ * Identifies a stored filing. The accession is the full accession number when known (e.g. 0000949365-95-000014),
+ * filings found in the folder layout only carry its last part.
+ */
+@Value
+public class FilingKey {
+    String formType;
+    Long cik;
+    String dateFiled;
+    String accession;
+
+    public static FilingKey of(FullIndex row) {
+        return of(row.getFormType(), row.getCik(), row.getDateFiled(), row.getFilename());
+    }
+
+    public static FilingKey of(FilingIndexEntry entry) {
+        return of(entry.getFormType(), entry.getCik(), entry.getDateFiled(), entry.getFilename());
+    }
+
+    private static FilingKey of(String formType, Long cik, String dateFiled, String filename) {
+        String path = filename.trim();
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        int extension = name.lastIndexOf('.');
+        String accession = extension > 0 ? name.substring(0, extension) : name;
+        return new FilingKey(formType, cik, dateFiled.trim(), accession);
+    }
+
+    public String shortAccession() {
+        return accession.substring(accession.lastIndexOf('-') + 1);
+    }
+
+    public FilingKey withAccession(String accession) {
+        return new FilingKey(formType, cik, dateFiled, accession);
+    }
+}
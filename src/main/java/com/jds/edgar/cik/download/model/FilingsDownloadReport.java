@@ -0,0 +1,27 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Per form type results of a download job, with the totals across all of them.
+ */
+@Value
+public class FilingsDownloadReport {
+    List<FilingDownloadResult> results;
+    long totalNewFilings;
+    long totalExistingFilings;
+    long totalFailedFilings;
+    long totalBytes;
+    long durationMillis;
+
+    public static FilingsDownloadReport of(List<FilingDownloadResult> results, long durationMillis) {
+        return new FilingsDownloadReport(results,
+                results.stream().mapToLong(FilingDownloadResult::getNewFilings).sum(),
+                results.stream().mapToLong(FilingDownloadResult::getExistingFilings).sum(),
+                results.stream().mapToLong(FilingDownloadResult::getFailedFilings).sum(),
+                results.stream().mapToLong(FilingDownloadResult::getBytes).sum(),
+                durationMillis);
+    }
+}
@@ -8,7 +8,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "full_index")
+@Table(name = "full_index",
+        uniqueConstraints = @UniqueConstraint(name = "uk_full_index_filename", columnNames = "filename"),
+        indexes = @Index(name = "idx_full_index_form_type_id", columnList = "formType, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,44 @@
+package com.jds.edgar.cik.download.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "full_index_checkpoint",
+        uniqueConstraints = @UniqueConstraint(name = "uk_full_index_checkpoint_quarter", columnNames = {"year", "quarter"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FullIndexCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Integer year;
+
+    private Integer quarter;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private Long rowCount;
+
+    private String contentHash;
+
+    private LocalDateTime finishedAt;
+
+    public enum Status {
+        IN_PROGRESS,
+        // The quarter is still open, its master.idx will keep growing until the quarter ends
+        PARTIAL,
+        COMPLETED,
+        FAILED
+    }
+}
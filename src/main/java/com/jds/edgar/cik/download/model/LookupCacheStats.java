@@ -0,0 +1,18 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Counters of one lookup cache since startup.
+ */
+@Value
+@Builder
+public class LookupCacheStats {
+    String name;
+    long size;
+    long hits;
+    long misses;
+    long evictions;
+    double hitRate;
+}
@@ -24,4 +24,11 @@ public class ProcessExecution {
 
     private LocalDateTime lastExecution;
 
+    private String etag;
+
+    private String lastModified;
+
+    @Column(length = 64)
+    private String contentHash;
+
 }
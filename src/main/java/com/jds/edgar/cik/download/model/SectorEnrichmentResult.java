@@ -0,0 +1,18 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Outcome of enriching the sector of a batch of CIKs.
+ */
+@Value
+@Builder
+public class SectorEnrichmentResult {
+    int ciks;
+    int enrichedCiks;
+    int failedCiks;
+    // Tickers of the enriched CIKs, several tickers can share one company page
+    int stocksUpdated;
+    long durationMillis;
+}
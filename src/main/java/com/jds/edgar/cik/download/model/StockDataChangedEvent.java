@@ -0,0 +1,13 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Value;
+
+/**
+ * Published after the stocks or the CIK to CUSIP mappings were written, so derived in-memory data can be rebuilt.
+ * Listeners bound to the transaction only see it once the changes are committed.
+ */
+@Value
+public class StockDataChangedEvent {
+    // Short name of the job that wrote the changes, for logging
+    String source;
+}
@@ -0,0 +1,16 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.Value;
+
+/**
+ * One match of a resolved identifier, the stock is null when nothing matched.
+ * A CIK with several tickers yields one resolution per ticker.
+ */
+@Value
+public class StockResolution {
+    public enum Type {CIK, TICKER, CUSIP}
+
+    Type type;
+    String identifier;
+    Stock stock;
+}
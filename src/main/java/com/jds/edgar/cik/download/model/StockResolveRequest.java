@@ -0,0 +1,33 @@
+package com.jds.edgar.cik.download.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batch of identifiers to resolve to stocks, CUSIPs may be CUSIP6, CUSIP8 or full nine character CUSIPs.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockResolveRequest {
+    @Builder.Default
+    private List<Long> ciks = new ArrayList<>();
+    @Builder.Default
+    private List<String> tickers = new ArrayList<>();
+    @Builder.Default
+    private List<String> cusips = new ArrayList<>();
+
+    public int size() {
+        return sizeOf(ciks) + sizeOf(tickers) + sizeOf(cusips);
+    }
+
+    private static int sizeOf(List<?> identifiers) {
+        return identifiers == null ? 0 : identifiers.size();
+    }
+}
@@ -0,0 +1,13 @@
+package com.jds.edgar.cik.download.repository;
+
+import com.jds.edgar.cik.download.model.CikCusipMaps;
+
+import java.util.List;
+
+public interface CikCusipMapsBatchRepository {
+    /**
+     * Inserts the given mappings with a single JDBC batch, bypassing the persistence context.
+     * Mappings whose (cik, cusip8) pair is already present are left as they are, so reloading creates no duplicates.
+     */
+    int batchUpsert(List<CikCusipMaps> rows);
+}
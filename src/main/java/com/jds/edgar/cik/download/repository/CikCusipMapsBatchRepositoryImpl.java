@@ -0,0 +1,43 @@
+package com.jds.edgar.cik.download.repository;
+
+import com.jds.edgar.cik.download.model.CikCusipMaps;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CikCusipMapsBatchRepositoryImpl implements CikCusipMapsBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO cik_cusip_maps (cik, cusip6, cusip8) VALUES (?, ?, ?) ";
+    private static final String MYSQL_UPSERT_SQL = INSERT_SQL + "AS new ON DUPLICATE KEY UPDATE cusip6 = new.cusip6";
+    private static final String POSTGRESQL_UPSERT_SQL = INSERT_SQL + "ON CONFLICT (cik, cusip8) DO UPDATE SET cusip6 = EXCLUDED.cusip6";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile SqlDialect dialect;
+
+    @Override
+    public int batchUpsert(List<CikCusipMaps> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        String sql = switch (dialect()) {
+            case MYSQL -> MYSQL_UPSERT_SQL;
+            case POSTGRESQL -> POSTGRESQL_UPSERT_SQL;
+        };
+        int[][] counts = jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getCik());
+            ps.setString(2, row.getCusip6());
+            ps.setString(3, row.getCusip8());
+        });
+        return Arrays.stream(counts).mapToInt(batch -> batch.length).sum();
+    }
+
+    private SqlDialect dialect() {
+        if (dialect == null) {
+            dialect = SqlDialect.of(jdbcTemplate);
+        }
+        return dialect;
+    }
+}
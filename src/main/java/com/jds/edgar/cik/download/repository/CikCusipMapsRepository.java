@@ -2,8 +2,14 @@ package com.jds.edgar.cik.download.repository;
 
 import com.jds.edgar.cik.download.model.CikCusipMaps;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
-public interface CikCusipMapsRepository extends JpaRepository<CikCusipMaps, Long> {
+public interface CikCusipMapsRepository extends JpaRepository<CikCusipMaps, Long>, CikCusipMapsBatchRepository {
+
+    @Query("SELECT m FROM CikCusipMaps m WHERE m.cik IN (SELECT s.cik FROM Stock s)")
+    List<CikCusipMaps> findAllOfStocks();
 }
@@ -0,0 +1,14 @@
+package com.jds.edgar.cik.download.repository;
+
+import com.jds.edgar.cik.download.model.FullIndex;
+
+import java.util.List;
+
+public interface FullIndexBatchRepository {
+    /**
+     * Inserts the given rows with a single JDBC batch, bypassing the persistence context.
+     * The IDENTITY id strategy on {@link FullIndex} prevents Hibernate from batching these inserts itself.
+     * Rows whose filename is already present are updated in place, so reloading a quarter creates no duplicates.
+     */
+    int batchUpsert(List<FullIndex> rows);
+}
@@ -0,0 +1,50 @@
+package com.jds.edgar.cik.download.repository;
+
+import com.jds.edgar.cik.download.model.FullIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class FullIndexBatchRepositoryImpl implements FullIndexBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO full_index (cik, company_name, form_type, date_filed, filename) VALUES (?, ?, ?, ?, ?) ";
+    private static final String MYSQL_UPSERT_SQL = INSERT_SQL +
+            "AS new ON DUPLICATE KEY UPDATE cik = new.cik, company_name = new.company_name, " +
+            "form_type = new.form_type, date_filed = new.date_filed";
+    private static final String POSTGRESQL_UPSERT_SQL = INSERT_SQL +
+            "ON CONFLICT (filename) DO UPDATE SET cik = EXCLUDED.cik, company_name = EXCLUDED.company_name, " +
+            "form_type = EXCLUDED.form_type, date_filed = EXCLUDED.date_filed";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile SqlDialect dialect;
+
+    @Override
+    public int batchUpsert(List<FullIndex> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        String sql = switch (dialect()) {
+            case MYSQL -> MYSQL_UPSERT_SQL;
+            case POSTGRESQL -> POSTGRESQL_UPSERT_SQL;
+        };
+        int[][] counts = jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getCik());
+            ps.setString(2, row.getCompanyName());
+            ps.setString(3, row.getFormType());
+            ps.setString(4, row.getDateFiled());
+            ps.setString(5, row.getFilename());
+        });
+        return Arrays.stream(counts).mapToInt(batch -> batch.length).sum();
+    }
+
+    private SqlDialect dialect() {
+        if (dialect == null) {
+            dialect = SqlDialect.of(jdbcTemplate);
+        }
+        return dialect;
+    }
+}
@@ -0,0 +1,15 @@
+package com.jds.edgar.cik.download.repository;
+
+import com.jds.edgar.cik.download.model.FullIndexCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FullIndexCheckpointRepository extends JpaRepository<FullIndexCheckpoint, Long> {
+    Optional<FullIndexCheckpoint> findByYearAndQuarter(Integer year, Integer quarter);
+
+    List<FullIndexCheckpoint> findByStatus(FullIndexCheckpoint.Status status);
+}
@@ -1,8 +1,11 @@
 package com.jds.edgar.cik.download.repository;
 
+import com.jds.edgar.cik.download.model.FilingIndexEntry;
 import com.jds.edgar.cik.download.model.FullIndex;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,13 +13,20 @@ import java.util.Optional;
 import java.util.Set;
 
 @Repository
-public interface FullIndexRepository extends JpaRepository<FullIndex, Long> {
+public interface FullIndexRepository extends JpaRepository<FullIndex, Long>, FullIndexBatchRepository {
     @Query("SELECT MAX(fi.dateFiled) FROM FullIndex fi")
     Optional<String> findLatestDateFiled();
 
     @Query("SELECT DISTINCT f.formType FROM FullIndex f")
     Set<String> findDistinctFormTypes();
 
-    List<FullIndex> findByFormType(String filingType);
+    long countByFormType(String formType);
+
+    /**
+     * Keyset page of the rows of a form type with an id greater than {@code afterId}, as unmanaged projections.
+     */
+    @Query("SELECT new com.jds.edgar.cik.download.model.FilingIndexEntry(f.id, f.cik, f.formType, f.dateFiled, f.filename) " +
+            "FROM FullIndex f WHERE f.formType = :formType AND f.id > :afterId ORDER BY f.id")
+    List<FilingIndexEntry> findPageByFormType(@Param("formType") String formType, @Param("afterId") long afterId, Pageable pageable);
 
 }
@@ -0,0 +1,59 @@
+package com.jds.edgar.cik.download.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Databases the native statements of the batch repositories are written for, MySQL 8 and Postgres.
+ */
+public enum SqlDialect {
+    MYSQL,
+    POSTGRESQL;
+
+    private static final int STREAMING_FETCH_SIZE = 1000;
+
+    /**
+     * Reads the database product of the data source behind {@code jdbcTemplate}.
+     */
+    public static SqlDialect of(JdbcTemplate jdbcTemplate) {
+        return of(jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    static SqlDialect of(String product) {
+        String name = product == null ? "" : product.toLowerCase(Locale.ROOT);
+        if (name.contains("postgres")) {
+            return POSTGRESQL;
+        }
+        if (name.contains("mysql") || name.contains("mariadb")) {
+            return MYSQL;
+        }
+        throw new IllegalStateException("Unsupported database: " + product);
+    }
+
+    /**
+     * Prepares a forward-only query whose rows are streamed instead of read into memory all at once.
+     * Connector/J only streams with a fetch size of {@link Integer#MIN_VALUE}, which the Postgres driver rejects;
+     * Postgres instead needs a positive fetch size and autocommit off to read through a cursor. Connections are
+     * returned with autocommit reset by the pool, or closed.
+     */
+    public static PreparedStatement prepareStreaming(Connection connection, String sql) throws SQLException {
+        SqlDialect dialect = of(connection.getMetaData().getDatabaseProductName());
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        switch (dialect) {
+            case MYSQL -> statement.setFetchSize(Integer.MIN_VALUE);
+            case POSTGRESQL -> {
+                if (connection.getAutoCommit()) {
+                    connection.setAutoCommit(false);
+                }
+                statement.setFetchSize(STREAMING_FETCH_SIZE);
+            }
+        }
+        return statement;
+    }
+}
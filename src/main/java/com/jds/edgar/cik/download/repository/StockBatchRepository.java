@@ -0,0 +1,36 @@
+package com.jds.edgar.cik.download.repository;
+
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockId;
+
+import java.util.List;
+import java.util.Map;
+
+public interface StockBatchRepository {
+    /**
+     * Inserts the given stocks with a single JDBC batch, only their CIK, ticker, name and exchange are written.
+     */
+    int batchInsert(List<Stock> stocks);
+
+    /**
+     * Updates the name and exchange of the given stocks with a single JDBC batch.
+     */
+    int batchUpdateNameAndExchange(List<Stock> stocks);
+
+    int batchDelete(List<StockId> stockIds);
+
+    /**
+     * Sets the SIC and sector of every ticker of each CIK and clears its last error, with a single JDBC batch.
+     */
+    int batchUpdateEnrichedData(Map<Long, Stock.EnrichedData> enrichedDataByCik);
+
+    /**
+     * Sets the SIC, sector and exchange of the given stocks and clears their last error, with a single JDBC batch.
+     */
+    int batchUpdateSicSectorAndExchange(List<Stock> stocks);
+
+    /**
+     * Records the error of each CIK on its tickers that are still to be enriched, with a single JDBC batch.
+     */
+    int batchUpdateLastError(Map<Long, String> errorsByCik);
+}
@@ -0,0 +1,108 @@
+package com.jds.edgar.cik.download.repository;
+
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockId;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class StockBatchRepositoryImpl implements StockBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO stocks (cik, ticker, name, exchange, created_at, updated_at) VALUES (?, ?, ?, ?, NOW(), NOW())";
+    private static final String UPDATE_SQL =
+            "UPDATE stocks SET name = ?, exchange = ?, updated_at = NOW() WHERE cik = ? AND ticker = ?";
+    private static final String DELETE_SQL = "DELETE FROM stocks WHERE cik = ? AND ticker = ?";
+    private static final String UPDATE_ENRICHED_DATA_SQL =
+            "UPDATE stocks SET sic = ?, sector = ?, last_error = NULL, updated_at = NOW() WHERE cik = ?";
+    private static final String UPDATE_SIC_SECTOR_AND_EXCHANGE_SQL =
+            "UPDATE stocks SET sic = ?, sector = ?, exchange = ?, last_error = NULL, updated_at = NOW() WHERE cik = ? AND ticker = ?";
+    private static final String UPDATE_LAST_ERROR_SQL =
+            "UPDATE stocks SET last_error = ?, updated_at = NOW() WHERE cik = ? AND sector IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchInsert(List<Stock> stocks) {
+        if (stocks.isEmpty()) {
+            return 0;
+        }
+        return sum(jdbcTemplate.batchUpdate(INSERT_SQL, stocks, stocks.size(), (ps, stock) -> {
+            ps.setLong(1, stock.getCik());
+            ps.setString(2, stock.getTicker());
+            ps.setString(3, stock.getName());
+            ps.setString(4, stock.getExchange());
+        }));
+    }
+
+    @Override
+    public int batchUpdateNameAndExchange(List<Stock> stocks) {
+        if (stocks.isEmpty()) {
+            return 0;
+        }
+        return sum(jdbcTemplate.batchUpdate(UPDATE_SQL, stocks, stocks.size(), (ps, stock) -> {
+            ps.setString(1, stock.getName());
+            ps.setString(2, stock.getExchange());
+            ps.setLong(3, stock.getCik());
+            ps.setString(4, stock.getTicker());
+        }));
+    }
+
+    @Override
+    public int batchDelete(List<StockId> stockIds) {
+        if (stockIds.isEmpty()) {
+            return 0;
+        }
+        return sum(jdbcTemplate.batchUpdate(DELETE_SQL, stockIds, stockIds.size(), (ps, stockId) -> {
+            ps.setLong(1, stockId.getCik());
+            ps.setString(2, stockId.getTicker());
+        }));
+    }
+
+    @Override
+    public int batchUpdateEnrichedData(Map<Long, Stock.EnrichedData> enrichedDataByCik) {
+        if (enrichedDataByCik.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<Long, Stock.EnrichedData>> entries = List.copyOf(enrichedDataByCik.entrySet());
+        return sum(jdbcTemplate.batchUpdate(UPDATE_ENRICHED_DATA_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.getValue().getSic());
+            ps.setString(2, entry.getValue().getSector());
+            ps.setLong(3, entry.getKey());
+        }));
+    }
+
+    @Override
+    public int batchUpdateSicSectorAndExchange(List<Stock> stocks) {
+        if (stocks.isEmpty()) {
+            return 0;
+        }
+        return sum(jdbcTemplate.batchUpdate(UPDATE_SIC_SECTOR_AND_EXCHANGE_SQL, stocks, stocks.size(), (ps, stock) -> {
+            ps.setString(1, stock.getSic());
+            ps.setString(2, stock.getSector());
+            ps.setString(3, stock.getExchange());
+            ps.setLong(4, stock.getCik());
+            ps.setString(5, stock.getTicker());
+        }));
+    }
+
+    @Override
+    public int batchUpdateLastError(Map<Long, String> errorsByCik) {
+        if (errorsByCik.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<Long, String>> entries = List.copyOf(errorsByCik.entrySet());
+        return sum(jdbcTemplate.batchUpdate(UPDATE_LAST_ERROR_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        }));
+    }
+
+    private static int sum(int[][] counts) {
+        return Arrays.stream(counts).mapToInt(batch -> batch.length).sum();
+    }
+}
@@ -3,24 +3,62 @@ package com.jds.edgar.cik.download.repository;
 import com.jds.edgar.cik.download.model.Stock;
 import com.jds.edgar.cik.download.model.StockId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface StockRepository extends JpaRepository<Stock, StockId> {
+public interface StockRepository extends JpaRepository<Stock, StockId>, StockBatchRepository {
     Optional<Stock> findByTicker(String ticker);
 
     Optional<Stock> findByCik(Long cik);
 
+    Optional<Stock> findFirstByCusip6(String cusip6);
+
+    Optional<Stock> findFirstByCusip8(String cusip8);
+
+    List<Stock> findByCikIn(Collection<Long> ciks);
+
+    List<Stock> findByTickerIn(Collection<String> tickers);
+
+    List<Stock> findByCusip6In(Collection<String> cusip6s);
+
+    List<Stock> findByCusip8In(Collection<String> cusip8s);
+
     List<Stock> findBySector(String sector);
 
     List<Stock> findBySic(String sic);
 
     Optional<Stock> findFirstBySectorIsNull();
 
+    /**
+     * @return up to {@code limit} CIKs with a ticker still to be enriched, the ones that never failed first
+     */
+    @Query(value = "SELECT cik FROM stocks WHERE sector IS NULL GROUP BY cik ORDER BY MAX(CASE WHEN last_error IS NOT NULL THEN 1 ELSE 0 END), cik LIMIT :limit", nativeQuery = true)
+    List<Long> findCiksToEnrich(@Param("limit") int limit);
+
     @Query("SELECT COUNT(s) FROM Stock s WHERE s.sector IS NULL")
     long countBySectorIsNull();
+
+    /**
+     * Sets the CUSIP of every stock to the first mapping stored for its CIK, in one statement.
+     * Stocks whose CUSIP is already up to date are not touched. Written with correlated subqueries and explicit null
+     * checks so it runs on both MySQL and Postgres.
+     *
+     * @return the number of stocks updated
+     */
+    @Modifying
+    @Query(value = "UPDATE stocks SET " +
+            "cusip6 = (SELECT m.cusip6 FROM cik_cusip_maps m WHERE m.id = (SELECT MIN(f.id) FROM cik_cusip_maps f WHERE f.cik = stocks.cik)), " +
+            "cusip8 = (SELECT m.cusip8 FROM cik_cusip_maps m WHERE m.id = (SELECT MIN(f.id) FROM cik_cusip_maps f WHERE f.cik = stocks.cik)), " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "WHERE EXISTS (SELECT 1 FROM cik_cusip_maps m WHERE m.id = (SELECT MIN(f.id) FROM cik_cusip_maps f WHERE f.cik = stocks.cik) " +
+            "AND (m.cusip6 <> stocks.cusip6 OR (m.cusip6 IS NULL) <> (stocks.cusip6 IS NULL) " +
+            "OR m.cusip8 <> stocks.cusip8 OR (m.cusip8 IS NULL) <> (stocks.cusip8 IS NULL)))", nativeQuery = true)
+    int updateCusipsFromMaps();
 }
@@ -1,16 +1,33 @@
 package com.jds.edgar.cik.download.service;
 
+import com.jds.edgar.cik.download.model.CachedResponse;
+import com.jds.edgar.cik.download.model.ConditionalDownload;
 import com.jds.edgar.cik.download.model.ProcessExecution;
 import com.jds.edgar.cik.download.repository.ProcessExecutionRepository;
+import com.jds.edgar.cik.download.store.HttpResponseCache;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 @Slf4j
 @Service
@@ -19,6 +36,15 @@ public abstract class AbstractDownloadService implements CikDownloadService {
     @Autowired
     private ProcessExecutionRepository processExecutionRepository;
 
+    @Autowired
+    private HttpResponseCache httpResponseCache;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private SecRateLimiter secRateLimiter;
+
     @PostConstruct
     public void init() {
         Optional<ProcessExecution> lastExecution = processExecutionRepository.findById(1L);
@@ -28,7 +54,100 @@ public abstract class AbstractDownloadService implements CikDownloadService {
         }
     }
 
+    /**
+     * Downloads the URL with the ETag and Last-Modified stored by the last run of the process as validators, unless
+     * the {@link HttpResponseCache} still holds a fresh copy of it.
+     * Nothing is returned when the server answers 304, or when the body hashes to the one the last run processed.
+     */
+    Optional<ConditionalDownload> downloadIfChanged(String processName, String url) throws IOException {
+        Optional<ProcessExecution> lastExecution = processExecutionRepository.findByName(processName);
+        Optional<CachedResponse> cachedResponse = httpResponseCache.lookup(url);
+        byte[] body;
+        String etag;
+        String lastModified;
+        if (cachedResponse.isPresent()) {
+            try (CachedResponse response = cachedResponse.get()) {
+                body = response.getBody().readAllBytes();
+                etag = response.getHeaders().get("ETag");
+                lastModified = response.getHeaders().get("Last-Modified");
+            }
+        } else {
+            FetchedBody fetched = fetch(processName, url, lastExecution);
+            if (fetched == null) {
+                return Optional.empty();
+            }
+            body = fetched.body();
+            etag = fetched.etag();
+            lastModified = fetched.lastModified();
+            if (httpResponseCache.isCacheable(url)) {
+                Map<String, String> headers = new HashMap<>();
+                headers.put(HttpHeaders.ETAG, etag);
+                headers.put(HttpHeaders.LAST_MODIFIED, lastModified);
+                httpResponseCache.put(url, new ByteArrayInputStream(body), headers);
+            }
+        }
+
+        String contentHash = sha256(body);
+        if (lastExecution.map(ProcessExecution::getContentHash).filter(contentHash::equals).isPresent()) {
+            log.info("{} has the same content as in the last {} run", url, processName);
+            return Optional.empty();
+        }
+        return Optional.of(ConditionalDownload.builder()
+                .body(body)
+                .etag(etag)
+                .lastModified(lastModified)
+                .contentHash(contentHash)
+                .build());
+    }
+
+    private record FetchedBody(byte[] body, String etag, String lastModified) {
+    }
+
+    /**
+     * Sends the conditional GET through the shared {@code RestTemplate}, which sets the user agent and waits for the
+     * SEC rate limiter.
+     *
+     * @return the body and its validators, or null if the server answered 304
+     */
+    private FetchedBody fetch(String processName, String url, Optional<ProcessExecution> lastExecution) {
+        try {
+            FetchedBody fetched = restTemplate.execute(url, HttpMethod.GET, request -> {
+                // The body is cached below, along with its validators
+                request.getHeaders().setCacheControl("no-cache");
+                lastExecution.map(ProcessExecution::getEtag).ifPresent(value -> request.getHeaders().set(HttpHeaders.IF_NONE_MATCH, value));
+                lastExecution.map(ProcessExecution::getLastModified).ifPresent(value -> request.getHeaders().set(HttpHeaders.IF_MODIFIED_SINCE, value));
+            }, response -> {
+                if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                    return null;
+                }
+                InputStream inputStream = response.getBody();
+                if ("gzip".equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+                    inputStream = new GZIPInputStream(inputStream, 64 * 1024);
+                }
+                return new FetchedBody(inputStream.readAllBytes(), response.getHeaders().getFirst(HttpHeaders.ETAG),
+                        response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+            });
+            secRateLimiter.onSuccess();
+            if (fetched == null) {
+                log.info("{} is not modified since the last {} run", url, processName);
+            }
+            return fetched;
+        } catch (HttpStatusCodeException e) {
+            if (SecRateLimiter.isThrottled(e.getStatusCode())) {
+                secRateLimiter.backOff();
+            }
+            throw e;
+        }
+    }
+
     void updateLastExecutionTime(String processName) {
+        updateLastExecutionTime(processName, null);
+    }
+
+    /**
+     * Records the run of the process, along with the validators of the download it processed, if any.
+     */
+    void updateLastExecutionTime(String processName, ConditionalDownload download) {
         ProcessExecution processExecution = processExecutionRepository.findByName(processName).orElseGet(() -> {
             ProcessExecution newProcessExecution = new ProcessExecution();
             newProcessExecution.setName(processName);
@@ -36,6 +155,19 @@ public abstract class AbstractDownloadService implements CikDownloadService {
         });
 
         processExecution.setLastExecution(LocalDateTime.now());
+        if (download != null) {
+            processExecution.setEtag(download.getEtag());
+            processExecution.setLastModified(download.getLastModified());
+            processExecution.setContentHash(download.getContentHash());
+        }
         processExecutionRepository.save(processExecution);
     }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
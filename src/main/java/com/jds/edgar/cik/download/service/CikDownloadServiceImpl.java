@@ -1,21 +1,20 @@
 package com.jds.edgar.cik.download.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jds.edgar.cik.download.config.EdgarConfig;
 import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
 import com.jds.edgar.cik.download.repository.StockRepository;
 import io.vavr.control.Try;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
@@ -28,6 +27,9 @@ public class CikDownloadServiceImpl extends AbstractDownloadService {
 
     private final EdgarConfig edgarConfig;
     private final StockRepository stockCikRepository;
+    private final StockLookupCache stockLookupCache;
+    private final CompanyTickersParser companyTickersParser;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Scheduled(cron = "${edgar.cik-update-cron}")
     @Override
@@ -35,19 +37,19 @@ public class CikDownloadServiceImpl extends AbstractDownloadService {
     public void downloadCikData() {
         log.info("Started to download CIK data from: {}", edgarConfig.getCompanyTickersUrl());
 
-        Try.of(() -> new URL(edgarConfig.getCompanyTickersUrl()))
-                .mapTry(url -> url.openConnection())
-                .mapTry(con -> (HttpURLConnection) con)
-                .andThenTry(con -> con.setRequestMethod("GET"))
-                .mapTry(con -> con.getInputStream())
-                .mapTry(inputStream -> new ObjectMapper().readValue(inputStream, Map.class))
-                .onSuccess(data -> updateDatabase(data))
+        Try.of(() -> downloadIfChanged(PROCESS_NAME, edgarConfig.getCompanyTickersUrl()))
+                .andThenTry(download -> {
+                    if (download.isPresent()) {
+                        updateDatabase(download.get().getBody());
+                    }
+                    updateLastExecutionTime(PROCESS_NAME, download.orElse(null));
+                })
                 .onFailure(throwable -> log.error("Error downloading company tickers JSON", throwable));
     }
 
-    private void updateDatabase(Map<String, Map<String, Object>> data) {
-        data.forEach((key, value) -> {
-            Long cik = Long.valueOf(String.valueOf(value.get("cik_str")));
+    private void updateDatabase(byte[] json) throws IOException {
+        companyTickersParser.parseCompanyTickers(json, companyTicker -> {
+            Long cik = companyTicker.cik();
             Optional<Stock> stockCikOptional = stockCikRepository.findByCik(cik);
 
             if (stockCikOptional.isPresent()) {
@@ -55,19 +57,20 @@ public class CikDownloadServiceImpl extends AbstractDownloadService {
                 Stock originalStockCik = stockCik.copy();
                 boolean updated = false;
 
-                if (!stockCik.getTicker().equals(value.get("ticker"))) {
-                    stockCik.setTicker((String) value.get("ticker"));
+                if (!stockCik.getTicker().equals(companyTicker.ticker())) {
+                    stockCik.setTicker(companyTicker.ticker());
                     updated = true;
                 }
 
-                if (!stockCik.getName().equals(value.get("title"))) {
-                    stockCik.setName((String) value.get("title"));
+                if (!stockCik.getName().equals(companyTicker.name())) {
+                    stockCik.setName(companyTicker.name());
                     updated = true;
                 }
 
                 if (updated) {
                     stockCik.setUpdated(LocalDateTime.now());
                     stockCikRepository.save(stockCik);
+                    stockLookupCache.invalidate(cik, originalStockCik.getTicker(), stockCik.getTicker());
                     log.warn("CIK {} has been updated", cik);
                     log.info("Stock object before update: {}", originalStockCik);
                     log.info("Stock object after update: {}", stockCik);
@@ -75,14 +78,15 @@ public class CikDownloadServiceImpl extends AbstractDownloadService {
             } else {
                 Stock newStockCik = Stock.builder()
                         .cik(cik)
-                        .ticker((String) value.get("ticker"))
-                        .name((String) value.get("title"))
+                        .ticker(companyTicker.ticker())
+                        .name(companyTicker.name())
                         .build();
                 stockCikRepository.save(newStockCik);
+                stockLookupCache.invalidate(cik, newStockCik.getTicker());
                 log.info("New Stock object saved: {}", newStockCik);
             }
         });
-        updateLastExecutionTime(PROCESS_NAME);
+        eventPublisher.publishEvent(new StockDataChangedEvent(PROCESS_NAME));
     }
 
 }
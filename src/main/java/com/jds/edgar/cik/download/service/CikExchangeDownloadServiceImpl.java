@@ -1,24 +1,27 @@
 package com.jds.edgar.cik.download.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jds.edgar.cik.download.config.EdgarConfig;
 import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
 import com.jds.edgar.cik.download.model.StockId;
 import com.jds.edgar.cik.download.repository.StockRepository;
 import io.vavr.control.Try;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -28,8 +31,11 @@ public class CikExchangeDownloadServiceImpl extends AbstractDownloadService {
 
     private final EdgarConfig edgarConfig;
     private final StockRepository stockCikRepository;
+    private final StockLookupCache stockLookupCache;
+    private final CompanyTickersParser companyTickersParser;
+    private final ApplicationEventPublisher eventPublisher;
 
-    private static final String PROCESS_NAME = "CIK_DATA_UPDATE";
+    private static final String PROCESS_NAME = "CIK_EXCHANGE_DATA_UPDATE";
 
     @Override
     @Scheduled(cron = "${edgar.cik-exchange-update-cron}")
@@ -37,59 +43,76 @@ public class CikExchangeDownloadServiceImpl extends AbstractDownloadService {
     public void downloadCikData() {
         log.info("Started to download CIK data from: {}", edgarConfig.getCompanyTickersExchangeUrl());
 
-        Try.of(() -> new URL(edgarConfig.getCompanyTickersExchangeUrl()))
-                .mapTry(URL::openConnection)
-                .mapTry(con -> (HttpURLConnection) con)
-                .andThenTry(con -> con.setRequestMethod("GET"))
-                .mapTry(HttpURLConnection::getInputStream)
-                .mapTry(inputStream -> new ObjectMapper().readValue(inputStream, LinkedHashMap.class))
-                .onSuccess(data -> updateDatabase(data))
+        Try.of(() -> downloadIfChanged(PROCESS_NAME, edgarConfig.getCompanyTickersExchangeUrl()))
+                .andThenTry(download -> {
+                    if (download.isPresent()) {
+                        syncStocks(download.get().getBody());
+                    }
+                    updateLastExecutionTime(PROCESS_NAME, download.orElse(null));
+                })
                 .onFailure(throwable -> log.error("Error downloading company tickers with exchange JSON", throwable));
     }
 
-    private void updateDatabase(LinkedHashMap<String, Object> data) {
-        List<List<Object>> stockData = (List<List<Object>>) data.get("data");
-        stockData.forEach(stockValues -> {
-            Long cik = Long.valueOf(String.valueOf(stockValues.get(0)));
-            String ticker = (String) stockValues.get(2);
-            StockId stockId = new StockId(cik, ticker);
-            Optional<Stock> optionalStockCik = stockCikRepository.findById(stockId);
+    /**
+     * Compares the stocks streamed from the downloaded JSON with the whole table loaded at once, then writes only the inserted, updated and
+     * deleted stocks in JDBC batches. Deletes are skipped when more than {@code edgar.exchange-sync-max-delete-ratio}
+     * of the stocks would go, as that points at an incomplete download rather than delisted tickers.
+     *
+     * @return the number of stocks inserted, updated or deleted
+     */
+    int syncStocks(byte[] json) throws IOException {
+        Map<StockId, Stock> current = stockCikRepository.findAll().stream()
+                .collect(Collectors.toMap(stock -> new StockId(stock.getCik(), stock.getTicker()), Function.identity()));
 
-            Stock stockCik = optionalStockCik.orElseGet(() -> {
-                Stock newStockCik = Stock.builder()
-                        .cik(cik)
-                        .ticker(ticker)
-                        .name((String) stockValues.get(1))
-                        .exchange((String) stockValues.get(3))
-                        .build();
-                stockCikRepository.save(newStockCik);
-                log.info("New Stock object saved: {}", newStockCik);
-                return newStockCik;
-            });
-
-            Stock originalStockCik = stockCik.copy();
-            boolean updated = false;
-
-            String newExchange = (String) stockValues.get(3);
-            if (stockCik.getExchange() == null && newExchange != null || stockCik.getExchange() != null && !stockCik.getExchange().equals(newExchange)) {
-                stockCik.setExchange(newExchange);
-                updated = true;
-            }
-
-            if (!stockCik.getName().equals(stockValues.get(1))) {
-                stockCik.setName((String) stockValues.get(1));
-                updated = true;
+        Map<StockId, Stock> downloaded = new LinkedHashMap<>();
+        companyTickersParser.parseCompanyTickersExchange(json, companyTicker -> {
+            if (companyTicker.ticker() != null) {
+                downloaded.put(new StockId(companyTicker.cik(), companyTicker.ticker()), Stock.builder()
+                        .cik(companyTicker.cik())
+                        .ticker(companyTicker.ticker())
+                        .name(companyTicker.name())
+                        .exchange(companyTicker.exchange())
+                        .build());
             }
+        });
 
-            if (updated) {
-                stockCik.setUpdated(LocalDateTime.now());
-                stockCikRepository.save(stockCik);
-                log.warn("Stock ID {} has been updated", stockId);
-                log.info("Stock object before update: {}", originalStockCik);
-                log.info("Stock object after update: {}", stockCik);
+        List<Stock> inserts = new ArrayList<>();
+        List<Stock> updates = new ArrayList<>();
+        downloaded.forEach((stockId, stock) -> {
+            Stock existing = current.get(stockId);
+            if (existing == null) {
+                inserts.add(stock);
+            } else if (!Objects.equals(existing.getName(), stock.getName()) || !Objects.equals(existing.getExchange(), stock.getExchange())) {
+                log.debug("Stock {} {} changed from {} on {} to {} on {}", stockId.getCik(), stockId.getTicker(),
+                        existing.getName(), existing.getExchange(), stock.getName(), stock.getExchange());
+                updates.add(stock);
             }
         });
-        updateLastExecutionTime(PROCESS_NAME);
+
+        List<StockId> deletes = current.keySet().stream()
+                .filter(stockId -> !downloaded.containsKey(stockId))
+                .collect(Collectors.toList());
+        if (deletes.size() > current.size() * edgarConfig.getExchangeSyncMaxDeleteRatio()) {
+            log.warn("{} of {} stocks are missing from the download, more than the allowed ratio of {}, not deleting them",
+                    deletes.size(), current.size(), edgarConfig.getExchangeSyncMaxDeleteRatio());
+            deletes = List.of();
+        }
+
+        stockCikRepository.batchInsert(inserts);
+        stockCikRepository.batchUpdateNameAndExchange(updates);
+        stockCikRepository.batchDelete(deletes);
+
+        inserts.forEach(stock -> stockLookupCache.invalidate(stock.getCik(), stock.getTicker()));
+        updates.forEach(stock -> stockLookupCache.invalidate(stock.getCik(), stock.getTicker()));
+        deletes.forEach(stockId -> stockLookupCache.invalidate(stockId.getCik(), stockId.getTicker()));
+
+        int changes = inserts.size() + updates.size() + deletes.size();
+        if (changes > 0) {
+            eventPublisher.publishEvent(new StockDataChangedEvent(PROCESS_NAME));
+        }
+        log.info("Synchronized {} downloaded stocks: {} inserted, {} updated, {} deleted", downloaded.size(),
+                inserts.size(), updates.size(), deletes.size());
+        return changes;
     }
 
 }
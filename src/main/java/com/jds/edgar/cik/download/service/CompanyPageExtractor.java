@@ -0,0 +1,244 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.Stock;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the SIC and sector in the raw bytes of an EDGAR company page, without building a DOM or the page text.
+ * <p>
+ * The bytes are searched once for the "No matching" messages, then only the {@code <p class="identInfo">} block is
+ * decoded: its tags are dropped, its entities decoded and its whitespace collapsed the way Jsoup renders element text,
+ * so the sector pattern sees the same text as it did on the DOM. The SIC is the text of the first link of the block.
+ * <p>
+ * Instances keep scratch buffers and are not thread safe, use one per thread.
+ */
+public class CompanyPageExtractor {
+
+    static final int MAX_SECTOR_LENGTH = 100;
+
+    private static final byte[] NO_MATCHING_TICKER = "No matching Ticker Symbol.".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NO_MATCHING_CIK = "No matching CIK.".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IDENT_INFO = "identInfo".getBytes(StandardCharsets.US_ASCII);
+    private static final Pattern SECTOR = Pattern.compile("SIC: \\d{4} - (.*?) State location:");
+
+    private final StringBuilder text = new StringBuilder(512);
+    private final StringBuilder sic = new StringBuilder(16);
+    private final StringBuilder tagName = new StringBuilder(16);
+    private final Matcher sectorMatcher = SECTOR.matcher("");
+
+    /**
+     * @throws IOException if the page is neither a "No matching" page nor has company information
+     */
+    public Stock.EnrichedData extract(byte[] page, int length) throws IOException {
+        if (CusipExtractor.indexOf(page, 0, length, NO_MATCHING_TICKER, false) >= 0) {
+            return Stock.EnrichedData.builder()
+                    .sic("Not Found")
+                    .sector("Not Found")
+                    .build();
+        }
+        if (CusipExtractor.indexOf(page, 0, length, NO_MATCHING_CIK, false) >= 0) {
+            return Stock.EnrichedData.builder()
+                    .sic("No CIK")
+                    .sector("No CIK")
+                    .build();
+        }
+
+        int blockStart = identInfoStart(page, length);
+        if (blockStart < 0) {
+            throw new IOException("No company information found in the page");
+        }
+        readBlock(page, blockStart, length);
+
+        String sector = "Not Available";
+        sectorMatcher.reset(text);
+        if (sectorMatcher.find()) {
+            sector = sectorMatcher.group(1).strip();
+        }
+        if (sector.length() > MAX_SECTOR_LENGTH) {
+            sector = sector.substring(0, MAX_SECTOR_LENGTH);
+        }
+        return Stock.EnrichedData.builder()
+                .sic(sic.toString().strip())
+                .sector(sector)
+                .build();
+    }
+
+    /**
+     * @return the offset right after the first {@code <p>} start tag with an {@code identInfo} class, or -1
+     */
+    private static int identInfoStart(byte[] page, int length) {
+        int position = 0;
+        while ((position = CusipExtractor.indexOf(page, position, length, IDENT_INFO, false)) >= 0) {
+            int tagStart = position;
+            while (tagStart >= 0 && page[tagStart] != '<' && page[tagStart] != '>') {
+                tagStart--;
+            }
+            int tagEnd = position;
+            while (tagEnd < length && page[tagEnd] != '>') {
+                tagEnd++;
+            }
+            position += IDENT_INFO.length;
+            if (tagStart >= 0 && tagEnd < length && page[tagStart] == '<' && tagStart + 2 < length
+                    && lower(page[tagStart + 1]) == 'p' && isSpace(page[tagStart + 2])
+                    && isClassToken(page, position - IDENT_INFO.length, tagStart, tagEnd)) {
+                return tagEnd + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isClassToken(byte[] page, int start, int tagStart, int tagEnd) {
+        int end = start + IDENT_INFO.length;
+        boolean startsToken = start > tagStart && (page[start - 1] == '"' || page[start - 1] == '\'' || page[start - 1] == '=' || isSpace(page[start - 1]));
+        boolean endsToken = end < tagEnd && (page[end] == '"' || page[end] == '\'' || page[end] == '/' || isSpace(page[end]));
+        if (!startsToken || !endsToken) {
+            return false;
+        }
+        // The token must be in the value of the class attribute
+        int equals = start - 1;
+        while (equals > tagStart && page[equals] != '=') {
+            equals--;
+        }
+        int name = equals - 1;
+        while (name > tagStart && isSpace(page[name])) {
+            name--;
+        }
+        return name - 4 > tagStart
+                && lower(page[name - 4]) == 'c' && lower(page[name - 3]) == 'l' && lower(page[name - 2]) == 'a'
+                && lower(page[name - 1]) == 's' && lower(page[name]) == 's' && isSpace(page[name - 5]);
+    }
+
+    /**
+     * Renders the text of the block into {@link #text} and the text of its first link into {@link #sic}.
+     */
+    private void readBlock(byte[] page, int position, int length) {
+        text.setLength(0);
+        sic.setLength(0);
+        boolean inFirstLink = false;
+        boolean firstLinkSeen = false;
+        while (position < length) {
+            byte b = page[position];
+            if (b == '<') {
+                int tagEnd = position + 1;
+                while (tagEnd < length && page[tagEnd] != '>') {
+                    tagEnd++;
+                }
+                boolean closing = position + 1 < length && page[position + 1] == '/';
+                readTagName(page, position + (closing ? 2 : 1), tagEnd);
+                if (isTag("p") || isTag("div")) {
+                    break;
+                }
+                if (isTag("br")) {
+                    appendWhitespace(text);
+                } else if (isTag("a")) {
+                    if (!closing && !firstLinkSeen) {
+                        inFirstLink = true;
+                        firstLinkSeen = true;
+                    } else if (closing) {
+                        inFirstLink = false;
+                    }
+                }
+                position = tagEnd + 1;
+                continue;
+            }
+
+            int codePoint;
+            if (b == '&') {
+                int semicolon = position + 1;
+                while (semicolon < length && semicolon - position <= 10 && page[semicolon] != ';' && page[semicolon] != '<') {
+                    semicolon++;
+                }
+                codePoint = semicolon < length && page[semicolon] == ';' ? decodeEntity(page, position + 1, semicolon) : -1;
+                if (codePoint < 0) {
+                    codePoint = '&';
+                    position++;
+                } else {
+                    position = semicolon + 1;
+                }
+            } else if ((b & 0x80) == 0) {
+                codePoint = b;
+                position++;
+            } else {
+                int bytes = (b & 0xE0) == 0xC0 ? 2 : (b & 0xF0) == 0xE0 ? 3 : (b & 0xF8) == 0xF0 ? 4 : 1;
+                int end = Math.min(length, position + bytes);
+                codePoint = new String(page, position, end - position, StandardCharsets.UTF_8).codePointAt(0);
+                position = end;
+            }
+            append(text, codePoint);
+            if (inFirstLink) {
+                append(sic, codePoint);
+            }
+        }
+        if (!text.isEmpty() && text.charAt(text.length() - 1) == ' ') {
+            text.setLength(text.length() - 1);
+        }
+    }
+
+    private void readTagName(byte[] page, int from, int to) {
+        tagName.setLength(0);
+        for (int i = from; i < to; i++) {
+            byte b = page[i];
+            if (isSpace(b) || b == '/') {
+                break;
+            }
+            tagName.append((char) lower(b));
+        }
+    }
+
+    private boolean isTag(String name) {
+        return name.contentEquals(tagName);
+    }
+
+    private static int decodeEntity(byte[] page, int from, int to) {
+        if (to - from >= 2 && page[from] == '#') {
+            boolean hex = page[from + 1] == 'x' || page[from + 1] == 'X';
+            int value = 0;
+            for (int i = from + (hex ? 2 : 1); i < to; i++) {
+                int digit = Character.digit(page[i], hex ? 16 : 10);
+                if (digit < 0 || value > 0x10FFFF) {
+                    return -1;
+                }
+                value = value * (hex ? 16 : 10) + digit;
+            }
+            return Character.isValidCodePoint(value) ? value : -1;
+        }
+        return switch (new String(page, from, to - from, StandardCharsets.US_ASCII)) {
+            case "amp" -> '&';
+            case "lt" -> '<';
+            case "gt" -> '>';
+            case "quot" -> '"';
+            case "apos" -> '\'';
+            case "nbsp" -> 0xA0;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Appends the character, collapsing runs of whitespace into one space and dropping leading whitespace.
+     */
+    private static void append(StringBuilder builder, int codePoint) {
+        if (codePoint == ' ' || codePoint == '\t' || codePoint == '\n' || codePoint == '\r' || codePoint == '\f' || codePoint == 0xA0) {
+            appendWhitespace(builder);
+        } else {
+            builder.appendCodePoint(codePoint);
+        }
+    }
+
+    private static void appendWhitespace(StringBuilder builder) {
+        if (!builder.isEmpty() && builder.charAt(builder.length() - 1) != ' ') {
+            builder.append(' ');
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+}
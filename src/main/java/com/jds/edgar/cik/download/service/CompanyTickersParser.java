@@ -0,0 +1,106 @@
+package com.jds.edgar.cik.download.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Token level parser of the SEC ticker files, emitting one {@link CompanyTicker} per company as it is read instead
+ * of building the untyped tree of the whole file first.
+ */
+@Component
+@RequiredArgsConstructor
+public class CompanyTickersParser {
+
+    /**
+     * One row of a ticker file, the exchange is null for {@code company_tickers.json}.
+     */
+    public record CompanyTicker(long cik, String ticker, String name, String exchange) {
+    }
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Parses {@code company_tickers.json}, an object of {@code {"cik_str", "ticker", "title"}} objects keyed by row number.
+     */
+    public void parseCompanyTickers(byte[] json, Consumer<CompanyTicker> consumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            expect(parser, JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                long cik = 0;
+                String ticker = null;
+                String title = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "cik_str" -> cik = parser.getValueAsLong();
+                        case "ticker" -> ticker = parser.getValueAsString();
+                        case "title" -> title = parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+                consumer.accept(new CompanyTicker(cik, ticker, title, null));
+            }
+        }
+    }
+
+    /**
+     * Parses {@code company_tickers_exchange.json}, a {@code data} array of rows whose columns are named by the
+     * {@code fields} array, {@code ["cik", "name", "ticker", "exchange"]} when it is missing or comes after the rows.
+     */
+    public void parseCompanyTickersExchange(byte[] json, Consumer<CompanyTicker> consumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            expect(parser, JsonToken.START_OBJECT);
+            String[] fields = {"cik", "name", "ticker", "exchange"};
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (field.equals("fields") && token == JsonToken.START_ARRAY) {
+                    fields = objectMapper.readValue(parser, String[].class);
+                } else if (field.equals("data") && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+                        consumer.accept(readRow(parser, fields));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static CompanyTicker readRow(JsonParser parser, String[] fields) throws IOException {
+        long cik = 0;
+        String ticker = null;
+        String name = null;
+        String exchange = null;
+        int column = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            switch (column < fields.length ? fields[column] : "") {
+                case "cik" -> cik = parser.getValueAsLong();
+                case "ticker" -> ticker = parser.getValueAsString();
+                case "name" -> name = parser.getValueAsString();
+                case "exchange" -> exchange = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+            column++;
+        }
+        return new CompanyTicker(cik, ticker, name, exchange);
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token != expected) {
+            throw new IOException("Expected " + expected + " but found " + token + " at " + parser.currentLocation());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.CikCusipMaps;
+import com.jds.edgar.cik.download.model.CusipExtractionResult;
+import com.jds.edgar.cik.download.model.FilingKey;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
+import com.jds.edgar.cik.download.repository.CikCusipMapsRepository;
+import com.jds.edgar.cik.download.store.FilingStore;
+import com.jds.edgar.cik.download.util.CikCusipSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Extracts CIK to CUSIP mappings from the 13D and 13G filings already in the filing store.
+ * <p>
+ * The store is walked on the calling thread and handed out in chunks to one worker per configured core.
+ * Each worker reuses its own read buffer and {@link CusipExtractor}, so scanning a filing allocates nothing
+ * but the mapping it finds, and writes the mappings of its chunk with a single JDBC batch.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CusipExtractionServiceImpl {
+
+    static final List<String> DEFAULT_FORM_TYPES = List.of("SC 13D", "SC 13D/A", "SC 13G", "SC 13G/A");
+
+    // The SEC header and the cover page carrying the CUSIP are at the start of the filing
+    private static final int SCAN_BYTES = 64 * 1024;
+    private static final int CHUNK_SIZE = 512;
+
+    private final EdgarConfig edgarConfig;
+    private final FilingStore filingStore;
+    private final CikCusipMapsRepository cikCusipMapsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[SCAN_BYTES]);
+    private final ThreadLocal<CusipExtractor> extractors = ThreadLocal.withInitial(CusipExtractor::new);
+
+    public CusipExtractionResult extractFromFilings(List<String> formTypes) {
+        List<String> types = formTypes == null || formTypes.isEmpty() ? DEFAULT_FORM_TYPES : formTypes;
+        Set<String> typeSet = Set.copyOf(types);
+        int concurrency = Math.max(1, edgarConfig.getCusipExtractionConcurrency());
+        log.info("Start extracting CUSIPs from {} filings with {} workers", types, concurrency);
+        long start = System.currentTimeMillis();
+
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong matched = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong stored = new AtomicLong();
+        CikCusipSet seen = new CikCusipSet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        // Bounds the chunks waiting for a worker, so walking the store never runs far ahead of the scan
+        Semaphore pending = new Semaphore(concurrency * 2);
+        try (Stream<FilingKey> keys = filingStore.keys()) {
+            Iterator<FilingKey> iterator = keys.filter(key -> typeSet.contains(key.getFormType())).iterator();
+            List<FilingKey> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE || !iterator.hasNext()) {
+                    List<FilingKey> work = chunk;
+                    pending.acquireUninterruptibly();
+                    executor.execute(() -> {
+                        try {
+                            stored.addAndGet(scanChunk(work, seen, scanned, matched, failed));
+                        } catch (RuntimeException e) {
+                            log.error("Failed to store the CUSIP mappings of {} filings", work.size(), e);
+                        } finally {
+                            pending.release();
+                        }
+                    });
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read the filing store", e);
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (stored.get() > 0) {
+            eventPublisher.publishEvent(new StockDataChangedEvent("CUSIP_EXTRACTION"));
+        }
+        long duration = System.currentTimeMillis() - start;
+        log.info("Finished extracting CUSIPs in {} ms, scanned: {}, matched: {}, failed: {}, mappings stored: {}",
+                duration, scanned, matched, failed, stored);
+        return CusipExtractionResult.builder()
+                .formTypes(types)
+                .filingsScanned(scanned.get())
+                .filingsMatched(matched.get())
+                .failedFilings(failed.get())
+                .mappingsStored(stored.get())
+                .durationMillis(duration)
+                .build();
+    }
+
+    private int scanChunk(List<FilingKey> chunk, CikCusipSet seen, AtomicLong scanned, AtomicLong matched, AtomicLong failed) {
+        byte[] buffer = buffers.get();
+        CusipExtractor extractor = extractors.get();
+        List<CikCusipMaps> rows = new ArrayList<>();
+        for (FilingKey key : chunk) {
+            try (InputStream content = filingStore.open(key)) {
+                int length = content.readNBytes(buffer, 0, buffer.length);
+                CusipExtractor.Match match = extractor.extract(buffer, length);
+                if (match != null) {
+                    matched.incrementAndGet();
+                    boolean added;
+                    synchronized (seen) {
+                        added = seen.add(match.cik(), match.cusip8());
+                    }
+                    if (added) {
+                        rows.add(CikCusipMaps.builder()
+                                .cik(match.cik())
+                                .cusip6(match.cusip6())
+                                .cusip8(match.cusip8())
+                                .build());
+                    }
+                }
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                log.error("Failed to read filing {}: {}", key, e.getMessage());
+            }
+            if (scanned.incrementAndGet() % 10_000 == 0) {
+                log.info("Scanned {} filings for CUSIPs, {} matched", scanned.get(), matched.get());
+            }
+        }
+        return cikCusipMapsRepository.batchUpsert(rows);
+    }
+}
@@ -0,0 +1,244 @@
+package com.jds.edgar.cik.download.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finds the subject company CIK and its CUSIP in the raw bytes of a 13D/13G filing, without decoding the text.
+ * <p>
+ * The CIK is the {@code CENTRAL INDEX KEY} of the {@code SUBJECT COMPANY} block of the SEC header, never the filer's.
+ * The CUSIP is looked for around every "CUSIP" in the document, after it ("CUSIP No. 037833100") and before it
+ * for cover pages that print the number above its "(CUSIP Number)" caption. Nine character candidates must carry
+ * a valid check digit, eight character ones are accepted as they are. The most frequent candidate wins.
+ * <p>
+ * Instances keep scratch buffers and are not thread safe, use one per thread.
+ */
+public class CusipExtractor {
+
+    private static final byte[] SUBJECT_COMPANY = "SUBJECT COMPANY:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CENTRAL_INDEX_KEY = "CENTRAL INDEX KEY:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEADER_END = "</SEC-HEADER>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CUSIP = "CUSIP".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int FORWARD_WINDOW = 80;
+    private static final int BACKWARD_WINDOW = 200;
+    private static final int MAX_CANDIDATES = 32;
+    private static final int MIN_DIGITS = 4;
+
+    private final byte[] token = new byte[9];
+    private final byte[][] candidates = new byte[MAX_CANDIDATES][8];
+    private final int[] votes = new int[MAX_CANDIDATES];
+    private int candidateCount;
+
+    /**
+     * Result of a successful extraction, the CUSIP is reduced to its first eight characters.
+     */
+    public record Match(long cik, String cusip6, String cusip8) {
+    }
+
+    /**
+     * @return the subject company CIK and CUSIP, or null if either could not be found
+     */
+    public Match extract(byte[] content, int length) {
+        long cik = subjectCik(content, length);
+        if (cik < 0) {
+            return null;
+        }
+
+        int headerEnd = indexOf(content, 0, length, HEADER_END, false);
+        int position = headerEnd < 0 ? 0 : headerEnd;
+        candidateCount = 0;
+        Arrays.fill(votes, 0);
+        while ((position = indexOf(content, position, length, CUSIP, true)) >= 0) {
+            int afterLabel = position + CUSIP.length;
+            if (!scanForward(content, afterLabel, Math.min(length, afterLabel + FORWARD_WINDOW))) {
+                scanBackward(content, Math.max(headerEnd < 0 ? 0 : headerEnd, position - BACKWARD_WINDOW), position);
+            }
+            position = afterLabel;
+        }
+
+        int best = -1;
+        for (int i = 0; i < candidateCount; i++) {
+            if (best < 0 || votes[i] > votes[best]) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        String cusip8 = new String(candidates[best], 0, 8, StandardCharsets.US_ASCII);
+        return new Match(cik, cusip8.substring(0, 6), cusip8);
+    }
+
+    /**
+     * Standard CUSIP check digit: digits keep their value, letters count from 10, '*', '@' and '#' are 36 to 38,
+     * every second value is doubled and the digits of all values are summed.
+     */
+    static boolean hasValidCheckDigit(byte[] cusip) {
+        int sum = 0;
+        for (int i = 0; i < 8; i++) {
+            int value = valueOf(cusip[i]);
+            if (value < 0) {
+                return false;
+            }
+            if (i % 2 == 1) {
+                value *= 2;
+            }
+            sum += value / 10 + value % 10;
+        }
+        return cusip[8] - '0' == (10 - sum % 10) % 10;
+    }
+
+    private long subjectCik(byte[] content, int length) {
+        int subject = indexOf(content, 0, length, SUBJECT_COMPANY, false);
+        if (subject < 0) {
+            return -1;
+        }
+        int key = indexOf(content, subject, length, CENTRAL_INDEX_KEY, false);
+        if (key < 0) {
+            return -1;
+        }
+        int i = key + CENTRAL_INDEX_KEY.length;
+        while (i < length && (content[i] == ' ' || content[i] == '\t')) {
+            i++;
+        }
+        long cik = 0;
+        int digits = 0;
+        while (i < length && content[i] >= '0' && content[i] <= '9' && digits < 12) {
+            cik = cik * 10 + (content[i++] - '0');
+            digits++;
+        }
+        return digits > 0 ? cik : -1;
+    }
+
+    /**
+     * Tries every token starting in the window and records the first plausible CUSIP.
+     */
+    private boolean scanForward(byte[] content, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (isTokenStart(content, from, i) && readCandidate(content, i, to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the plausible CUSIP closest to the label, looking backwards from it.
+     */
+    private void scanBackward(byte[] content, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (isTokenStart(content, from, i) && readCandidate(content, i, to)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isTokenStart(byte[] content, int windowStart, int i) {
+        return isAlphanumeric(upper(content[i])) && (i == windowStart || !isAlphanumeric(upper(content[i - 1])));
+    }
+
+    /**
+     * Reads up to nine alphanumerics starting at {@code start}, allowing single spaces or dashes between groups
+     * ("037833 10 0"), and records the CUSIP if one ends at a group boundary.
+     */
+    private boolean readCandidate(byte[] content, int start, int end) {
+        int length = 0;
+        int digits = 0;
+        int digitsAtEight = 0;
+        boolean eightAtBoundary = false;
+        boolean separator = false;
+        int i = start;
+        while (i < end && length < 9) {
+            byte c = upper(content[i]);
+            if (isAlphanumeric(c)) {
+                token[length++] = c;
+                if (c >= '0' && c <= '9') {
+                    digits++;
+                }
+                separator = false;
+            } else if ((c == ' ' || c == '-') && !separator) {
+                if (length == 8) {
+                    eightAtBoundary = true;
+                    digitsAtEight = digits;
+                }
+                separator = true;
+            } else {
+                break;
+            }
+            i++;
+        }
+        boolean endsAtBoundary = i >= end || !isAlphanumeric(upper(content[i]));
+        if (length == 8 && endsAtBoundary) {
+            eightAtBoundary = true;
+            digitsAtEight = digits;
+        }
+
+        if (length == 9 && endsAtBoundary && digits >= MIN_DIGITS && hasValidCheckDigit(token)) {
+            return record();
+        }
+        if (eightAtBoundary && digitsAtEight >= MIN_DIGITS) {
+            return record();
+        }
+        return false;
+    }
+
+    private boolean record() {
+        if (token[0] == '0' && token[1] == '0' && token[2] == '0' && token[3] == '0' && token[4] == '0' && token[5] == '0') {
+            return false;
+        }
+        for (int i = 0; i < candidateCount; i++) {
+            if (Arrays.equals(candidates[i], 0, 8, token, 0, 8)) {
+                votes[i]++;
+                return true;
+            }
+        }
+        if (candidateCount < MAX_CANDIDATES) {
+            System.arraycopy(token, 0, candidates[candidateCount], 0, 8);
+            votes[candidateCount++] = 1;
+        }
+        return true;
+    }
+
+    private static int valueOf(byte c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        return switch (c) {
+            case '*' -> 36;
+            case '@' -> 37;
+            case '#' -> 38;
+            default -> -1;
+        };
+    }
+
+    private static boolean isAlphanumeric(byte c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static byte upper(byte c) {
+        return c >= 'a' && c <= 'z' ? (byte) (c - 32) : c;
+    }
+
+    static int indexOf(byte[] content, int from, int to, byte[] pattern, boolean ignoreCase) {
+        int last = to - pattern.length;
+        byte first = pattern[0];
+        for (int i = Math.max(0, from); i <= last; i++) {
+            byte c = ignoreCase ? upper(content[i]) : content[i];
+            if (c != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && (ignoreCase ? upper(content[i + j]) : content[i + j]) == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
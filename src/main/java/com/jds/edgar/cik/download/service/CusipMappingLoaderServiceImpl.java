@@ -0,0 +1,128 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.CikCusipMaps;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
+import com.jds.edgar.cik.download.repository.CikCusipMapsRepository;
+import com.jds.edgar.cik.download.util.CikCusipSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Loads CIK to CUSIP mappings from {@code <formType>.csv} files with {@code index,cik,cusip} rows.
+ * <p>
+ * Files are read line by line and pairs already seen in this run are dropped using a {@link CikCusipSet},
+ * so memory grows with the number of distinct mappings rather than the size of the files.
+ * Rows are upserted in JDBC batches on the unique (cik, cusip8) constraint, so loading the same files again
+ * creates no duplicates.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CusipMappingLoaderServiceImpl {
+
+    private static final int BATCH_SIZE = 5000;
+
+    private final CikCusipMapsRepository cikCusipMapsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public void loadMappings(List<String> filingTypes) {
+        log.info("Start loading CUSIP mappings of {}", filingTypes);
+        long startTime = System.currentTimeMillis();
+
+        CikCusipSet seen = new CikCusipSet();
+        long upserted = 0;
+        for (String filingType : filingTypes) {
+            Path csvFile = Path.of(filingType.trim() + ".csv");
+            try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+                upserted += loadMappings(reader, seen);
+            } catch (IOException e) {
+                log.error("Failed to read CUSIP mappings from {}: {}", csvFile, e.getMessage());
+            }
+        }
+
+        if (upserted > 0) {
+            eventPublisher.publishEvent(new StockDataChangedEvent("CUSIP_MAPPINGS"));
+        }
+        log.info("Finished loading CUSIP mappings, {} distinct mappings upserted in {} ms", upserted,
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * @return the number of mappings not already seen in this run, which were upserted
+     */
+    long loadMappings(BufferedReader reader, CikCusipSet seen) throws IOException {
+        List<CikCusipMaps> batch = new ArrayList<>(BATCH_SIZE);
+        long upserted = 0;
+        long skipped = 0;
+
+        reader.readLine(); // Skip header
+        String line;
+        while ((line = reader.readLine()) != null) {
+            CikCusipMaps mapping = parse(line);
+            if (mapping == null) {
+                skipped++;
+                continue;
+            }
+            if (!seen.add(mapping.getCik(), mapping.getCusip8())) {
+                continue;
+            }
+            batch.add(mapping);
+            if (batch.size() == BATCH_SIZE) {
+                cikCusipMapsRepository.batchUpsert(batch);
+                upserted += batch.size();
+                batch.clear();
+            }
+        }
+        cikCusipMapsRepository.batchUpsert(batch);
+        upserted += batch.size();
+
+        if (skipped > 0) {
+            log.info("Skipped {} rows without a CIK and a valid CUSIP8", skipped);
+        }
+        return upserted;
+    }
+
+    /**
+     * @return the mapping of an {@code index,cik,cusip} row, or null if it has no CIK, the CUSIP is shorter than
+     * eight characters, or it is a known placeholder
+     */
+    static CikCusipMaps parse(String line) {
+        int first = line.indexOf(',');
+        int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+        if (second < 0) {
+            return null;
+        }
+        int third = line.indexOf(',', second + 1);
+        String cikColumn = line.substring(first + 1, second).trim();
+        String cusip = line.substring(second + 1, third < 0 ? line.length() : third).trim().toUpperCase(Locale.ROOT);
+
+        if (cusip.length() != 8 && cusip.length() != 9) {
+            return null;
+        }
+        if (cusip.startsWith("000000") || cusip.startsWith("0001PT") || CikCusipSet.pack(cusip.substring(0, 8)) < 0) {
+            return null;
+        }
+        long cik;
+        try {
+            cik = Long.parseLong(cikColumn);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return CikCusipMaps.builder()
+                .cik(cik)
+                .cusip6(cusip.substring(0, 6))
+                .cusip8(cusip.substring(0, 8))
+                .build();
+    }
+}
@@ -1,24 +1,45 @@
 package com.jds.edgar.cik.download.service;
 
 import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.CachedResponse;
+import com.jds.edgar.cik.download.model.SectorEnrichmentResult;
 import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
 import com.jds.edgar.cik.download.repository.StockRepository;
+import com.jds.edgar.cik.download.store.HttpResponseCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 @Slf4j
 @Service
@@ -26,13 +47,177 @@ import java.util.regex.Pattern;
 @ConditionalOnProperty(name = "edgar.use-sector-enrich", havingValue = "true")
 public class EdgarSectorEnrichServiceImpl {
 
+    private static final Pattern SUBMISSIONS_ENTRY = Pattern.compile("CIK\\d{10}\\.json");
+
     private final EdgarConfig edgarConfig;
     private final StockRepository cikRepository;
+    private final StockLookupCache stockLookupCache;
+    private final SecRateLimiter secRateLimiter;
+    private final SubmissionsParser submissionsParser;
+    private final HttpResponseCache httpResponseCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadLocal<CompanyPageExtractor> companyPageExtractors = ThreadLocal.withInitial(CompanyPageExtractor::new);
 
     @Scheduled(cron = "${edgar.sector-enrich-cron}")
-    public void enrichNextCik() {
-        cikRepository.findFirstBySectorIsNull()
-                .ifPresent(stockCik -> enrichCik(stockCik.getTicker()));
+    public void enrichNextCiks() {
+        enrichNextBatch();
+    }
+
+    /**
+     * Claims up to {@code edgar.sector-enrich-batch-size} CIKs that still have tickers to enrich and fetches the
+     * company page of each CIK once, on {@code edgar.sector-enrich-concurrency} workers sharing the SEC rate limit.
+     * The SIC and sector are then written to every ticker of the CIK, and the failures to the ones still to enrich,
+     * with one JDBC batch each. CIKs that failed before are only claimed once the others are done.
+     */
+    public SectorEnrichmentResult enrichNextBatch() {
+        long start = System.currentTimeMillis();
+        List<Long> ciks = cikRepository.findCiksToEnrich(edgarConfig.getSectorEnrichBatchSize());
+        if (ciks.isEmpty()) {
+            return SectorEnrichmentResult.builder().build();
+        }
+
+        Map<Long, Stock.EnrichedData> enrichedDataByCik = new ConcurrentHashMap<>();
+        Map<Long, String> errorsByCik = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(edgarConfig.getSectorEnrichConcurrency(), ciks.size())));
+        try {
+            executor.invokeAll(ciks.stream()
+                    .map(cik -> (Callable<Void>) () -> {
+                        enrichCikPage(cik, enrichedDataByCik, errorsByCik);
+                        return null;
+                    })
+                    .toList());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        cikRepository.batchUpdateEnrichedData(enrichedDataByCik);
+        cikRepository.batchUpdateLastError(errorsByCik);
+        int stocksUpdated = 0;
+        for (Stock stock : cikRepository.findByCikIn(ciks)) {
+            stockLookupCache.invalidate(stock.getCik(), stock.getTicker());
+            if (enrichedDataByCik.containsKey(stock.getCik())) {
+                stocksUpdated++;
+            }
+        }
+        if (!enrichedDataByCik.isEmpty()) {
+            eventPublisher.publishEvent(new StockDataChangedEvent("SECTOR_ENRICH"));
+        }
+
+        SectorEnrichmentResult result = SectorEnrichmentResult.builder()
+                .ciks(ciks.size())
+                .enrichedCiks(enrichedDataByCik.size())
+                .failedCiks(errorsByCik.size())
+                .stocksUpdated(stocksUpdated)
+                .durationMillis(System.currentTimeMillis() - start)
+                .build();
+        log.info("Enriched {} of {} CIKs, {} stocks updated, {} CIKs failed in {} ms", result.getEnrichedCiks(),
+                result.getCiks(), result.getStocksUpdated(), result.getFailedCiks(), result.getDurationMillis());
+        return result;
+    }
+
+    /**
+     * Enriches the SIC, sector and exchange of every stock from a local copy of the SEC {@code submissions.zip}
+     * archive, without any request to the SEC. Only the {@code CIK##########.json} entries of CIKs in the stocks
+     * table are read, straight from the archive by one worker per core, and the stocks are written with one JDBC
+     * batch. The sector is the upper cased SIC description, as shown on the company pages.
+     */
+    public SectorEnrichmentResult enrichFromSubmissionsArchive() throws IOException {
+        long start = System.currentTimeMillis();
+        Path archive = Path.of(edgarConfig.getSubmissionsArchive());
+        Map<Long, List<Stock>> stocksByCik = cikRepository.findAll().stream()
+                .collect(Collectors.groupingBy(Stock::getCik));
+        log.info("Start enriching {} CIKs from {}", stocksByCik.size(), archive);
+
+        List<Stock> updates = new ArrayList<>();
+        int ciks;
+        int failed = 0;
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            List<? extends ZipEntry> entries = zipFile.stream()
+                    .filter(entry -> SUBMISSIONS_ENTRY.matcher(entry.getName()).matches())
+                    .filter(entry -> stocksByCik.containsKey(Long.parseLong(entry.getName().substring(3, 13))))
+                    .toList();
+            ciks = entries.size();
+            ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            try {
+                List<Future<List<Stock>>> futures = new ArrayList<>(entries.size());
+                for (ZipEntry entry : entries) {
+                    futures.add(executor.submit(() -> {
+                        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                            SubmissionsParser.Submission submission = submissionsParser.parse(inputStream);
+                            return enrichedStocks(submission, stocksByCik.getOrDefault(submission.cik(), List.of()));
+                        }
+                    }));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        updates.addAll(futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        log.error("Error reading {} from {}", entries.get(i).getName(), archive, e.getCause());
+                        failed++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading " + archive, e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        cikRepository.batchUpdateSicSectorAndExchange(updates);
+        if (!updates.isEmpty()) {
+            stockLookupCache.invalidateAll();
+            eventPublisher.publishEvent(new StockDataChangedEvent("SUBMISSIONS_ENRICH"));
+        }
+
+        SectorEnrichmentResult result = SectorEnrichmentResult.builder()
+                .ciks(ciks)
+                .enrichedCiks(ciks - failed)
+                .failedCiks(failed)
+                .stocksUpdated(updates.size())
+                .durationMillis(System.currentTimeMillis() - start)
+                .build();
+        log.info("Enriched {} of {} CIKs from {}, {} stocks updated, {} CIKs failed in {} ms", result.getEnrichedCiks(),
+                result.getCiks(), archive, result.getStocksUpdated(), result.getFailedCiks(), result.getDurationMillis());
+        return result;
+    }
+
+    private static List<Stock> enrichedStocks(SubmissionsParser.Submission submission, List<Stock> stocks) {
+        String sic = submission.sic() == null ? "" : submission.sic();
+        String sector = submission.sicDescription() == null || submission.sicDescription().isBlank()
+                ? "Not Available"
+                : truncateSector(submission.sicDescription().strip().toUpperCase(Locale.ROOT));
+        List<Stock> enriched = new ArrayList<>(stocks.size());
+        for (Stock stock : stocks) {
+            Stock copy = stock.copy();
+            copy.updateEnrichedData(Stock.EnrichedData.builder().sic(sic).sector(sector).build());
+            int position = submission.tickers().indexOf(stock.getTicker());
+            if (position >= 0 && position < submission.exchanges().size() && submission.exchanges().get(position) != null) {
+                copy.setExchange(submission.exchanges().get(position));
+            }
+            enriched.add(copy);
+        }
+        return enriched;
+    }
+
+    private void enrichCikPage(Long cik, Map<Long, Stock.EnrichedData> enrichedDataByCik, Map<Long, String> errorsByCik) {
+        try {
+            enrichedDataByCik.put(cik, extractData(String.valueOf(cik)));
+            secRateLimiter.onSuccess();
+        } catch (HttpStatusException e) {
+            if (SecRateLimiter.isThrottled(HttpStatusCode.valueOf(e.getStatusCode()))) {
+                // Left unmarked, the CIK is claimed again by a later batch
+                secRateLimiter.backOff();
+            } else {
+                log.error("Error enriching CIK: {}", cik, e);
+                errorsByCik.put(cik, e.getMessage());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Error enriching CIK: {}", cik, e);
+            errorsByCik.put(cik, String.valueOf(e.getMessage()));
+        }
     }
 
     public Optional<Stock> enrichCik(String ticker) {
@@ -52,7 +237,10 @@ public class EdgarSectorEnrichServiceImpl {
                 Stock.EnrichedData enrichedData = extractData(stockCik.getTicker());
                 stockCik.updateEnrichedData(enrichedData);
                 stockCik.setLastError(null);
-                return Optional.of(cikRepository.save(stockCik));
+                Stock saved = cikRepository.save(stockCik);
+                stockLookupCache.invalidate(saved.getCik(), saved.getTicker());
+                eventPublisher.publishEvent(new StockDataChangedEvent("SECTOR_ENRICH"));
+                return Optional.of(saved);
             } catch (IOException e) {
                 log.error("Error enriching CIK: {} (attempt {}/{})", stockCik.getCik(), attempt, retries, e);
                 stockCik.setLastError(e.getMessage());
@@ -66,14 +254,47 @@ public class EdgarSectorEnrichServiceImpl {
             }
         }
         cikRepository.save(stockCik);
+        stockLookupCache.invalidate(stockCik.getCik(), stockCik.getTicker());
         return Optional.empty();
     }
 
-    private Stock.EnrichedData extractData(String ticker) throws IOException {
+    /**
+     * @param ticker the ticker or the CIK of the company
+     */
+    Stock.EnrichedData extractData(String ticker) throws IOException {
         String url = edgarConfig.getEnrichSectorUrl().replace("{cik}", String.valueOf(ticker));
         log.info("Enriching CIK: {} from: {}", ticker, url);
 
-        Document doc = Jsoup.connect(url).get();
+        byte[] page;
+        if (httpResponseCache.isCacheable(url)) {
+            try (CachedResponse response = httpResponseCache.get(url, outputStream -> {
+                secRateLimiter.acquire();
+                Connection.Response fetched = Jsoup.connect(url).execute();
+                fetched.bodyStream().transferTo(outputStream);
+                return fetched.contentType() == null ? Map.of() : Map.of("Content-Type", fetched.contentType());
+            })) {
+                page = response.getBody().readAllBytes();
+            }
+        } else {
+            httpResponseCache.checkOnline(url);
+            secRateLimiter.acquire();
+            page = Jsoup.connect(url).execute().bodyAsBytes();
+        }
+
+        Stock.EnrichedData enrichedData = companyPageExtractors.get().extract(page, page.length);
+        if ("Not Found".equals(enrichedData.getSic())) {
+            log.warn("No matching Ticker Symbol for CIK: {}", ticker);
+        } else if ("No CIK".equals(enrichedData.getSic())) {
+            log.warn("No matching CIK for CIK: {}", ticker);
+        }
+        return enrichedData;
+    }
+
+    /**
+     * Reference implementation of {@link CompanyPageExtractor} on the Jsoup DOM, kept to check that both read the
+     * same SIC and sector from saved pages and to benchmark them.
+     */
+    static Stock.EnrichedData parseEnrichedData(Document doc, String ticker) {
 
         // Check if "No matching Ticker Symbol." is present in the HTML content
         if (doc.text().contains("No matching Ticker Symbol.")) {
@@ -108,30 +329,15 @@ public class EdgarSectorEnrichServiceImpl {
             sector = matcher.group(1).strip();
         }
 
-        // Truncate the sector string to fit the database column
-        int maxSectorLength = 100;
-        if (sector.length() > maxSectorLength) {
-            sector = sector.substring(0, maxSectorLength);
-        }
-
         return Stock.EnrichedData.builder()
                 .sic(sic)
-                .sector(sector)
+                .sector(truncateSector(sector))
                 .build();
     }
 
-    public void exportToCSV(PrintWriter writer) {
-        List<Stock> stockCiks = cikRepository.findAll();
-
-        writer.println("CIK,Ticker,Name,Sector,SIC");
-
-        stockCiks.stream().map(stockCik -> String.format("%s,%s,%s,%s,%s",
-                        stockCik.getCik(),
-                        stockCik.getTicker(),
-                        stockCik.getName(),
-                        stockCik.getSector(),
-                        stockCik.getSic()))
-                .forEach(writer::println);
+    // Truncate the sector string to fit the database column
+    private static String truncateSector(String sector) {
+        return sector.length() > CompanyPageExtractor.MAX_SECTOR_LENGTH ? sector.substring(0, CompanyPageExtractor.MAX_SECTOR_LENGTH) : sector;
     }
 
 }
@@ -0,0 +1,84 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.FilingKey;
+import com.jds.edgar.cik.download.store.FilingStore;
+import com.jds.edgar.cik.download.store.FolderFilingStore;
+import com.jds.edgar.cik.download.store.SegmentFilingStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * One-time copy of an existing {@code edgar.filings-folder} into the segment store.
+ * The original files are left in place and can be removed once the migration has been checked.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FilingStoreMigrationServiceImpl {
+
+    private static final Pattern ACCESSION_PATTERN = Pattern.compile("ACCESSION NUMBER:\\s*(\\S+)");
+    private static final int HEADER_SIZE = 4096;
+
+    private final EdgarConfig edgarConfig;
+    private final FilingStore filingStore;
+
+    public String migrateFolderToSegments() {
+        if (!(filingStore instanceof SegmentFilingStore)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "edgar.filings-store must be set to segment to migrate the filings folder");
+        }
+        log.info("Start migrating {} to the segment store", edgarConfig.getFilingsFolder());
+
+        FolderFilingStore folderStore = new FolderFilingStore(edgarConfig);
+        AtomicLong migrated = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        try (Stream<FilingKey> keys = folderStore.keys()) {
+            keys.parallel().forEach(key -> {
+                try {
+                    // File names only keep the last part of the accession number, the full one is in the SEC header
+                    FilingKey segmentKey = key.withAccession(readAccession(folderStore, key).orElse(key.getAccession()));
+                    if (filingStore.exists(segmentKey)) {
+                        skipped.incrementAndGet();
+                        return;
+                    }
+                    try (InputStream content = folderStore.open(key)) {
+                        filingStore.write(segmentKey, content);
+                    }
+                    if (migrated.incrementAndGet() % 10_000 == 0) {
+                        log.info("Migrated {} filings", migrated.get());
+                    }
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                    log.error("Failed to migrate {}: {}", folderStore.pathOf(key), e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read the filings folder", e);
+        }
+
+        log.info("Finished migrating filings folder, migrated: {}, skipped: {}, failed: {}", migrated, skipped, failed);
+        return "Migrated " + migrated + " filings, skipped " + skipped + " already stored and " + failed + " failed.";
+    }
+
+    private Optional<String> readAccession(FolderFilingStore folderStore, FilingKey key) throws IOException {
+        try (InputStream content = folderStore.open(key)) {
+            byte[] header = content.readNBytes(HEADER_SIZE);
+            Matcher matcher = ACCESSION_PATTERN.matcher(new String(header, StandardCharsets.ISO_8859_1));
+            return matcher.find() ? Optional.of(matcher.group(1)) : Optional.empty();
+        }
+    }
+}
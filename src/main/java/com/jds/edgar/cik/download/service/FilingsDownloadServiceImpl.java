@@ -1,35 +1,56 @@
 package com.jds.edgar.cik.download.service;
 
 import com.jds.edgar.cik.download.config.EdgarConfig;
-import com.jds.edgar.cik.download.model.CikCusipMaps;
+import com.jds.edgar.cik.download.model.FilingDownloadProgress;
+import com.jds.edgar.cik.download.model.FilingDownloadResult;
+import com.jds.edgar.cik.download.model.FilingIndexEntry;
+import com.jds.edgar.cik.download.model.FilingKey;
+import com.jds.edgar.cik.download.model.FilingsDownloadReport;
 import com.jds.edgar.cik.download.model.FullIndex;
-import com.jds.edgar.cik.download.repository.CikCusipMapsRepository;
+import com.jds.edgar.cik.download.model.FullIndexCheckpoint;
+import com.jds.edgar.cik.download.repository.FullIndexCheckpointRepository;
 import com.jds.edgar.cik.download.repository.FullIndexRepository;
 import com.jds.edgar.cik.download.repository.StockRepository;
-import io.vavr.control.Try;
-import jakarta.transaction.Transactional;
+import com.jds.edgar.cik.download.store.FilingManifest;
+import com.jds.edgar.cik.download.store.FilingStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
-import java.time.Year;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.zip.GZIPInputStream;
@@ -38,34 +59,113 @@ import java.util.zip.GZIPInputStream;
 @Service
 @RequiredArgsConstructor
 public class FilingsDownloadServiceImpl {
+    private static final int FIRST_INDEX_YEAR = 1994;
+    private static final int PROGRESS_LOG_INTERVAL = 1000;
+
     private final EdgarConfig edgarConfig;
     private final RestTemplate restTemplate;
     private final StockRepository stockCikRepository;
     private final FullIndexRepository fullIndexRepository;
-    private final CikCusipMapsRepository cikCusipMapsRepository;
-
-    public void processFillings(List<String> filingTypes) {
-        List<String> csvFiles = filingTypes.stream().map(filingType -> filingType + ".csv").collect(Collectors.toList());
-        generateMappings(csvFiles);
-    }
+    private final FullIndexCheckpointRepository fullIndexCheckpointRepository;
+    private final SecRateLimiter secRateLimiter;
+    private final FilingStore filingStore;
+    private final FilingManifest filingManifest;
+    private final FilingDownloadProgress downloadProgress = new FilingDownloadProgress();
 
     public void downloadFullIndex() {
         log.info("Start downloading full index files");
-        int currentYear = Year.now().getValue();
 
-        Optional<String> latestDateString = fullIndexRepository.findLatestDateFiled();
-        LocalDate latestDate = latestDateString.map(dateStr -> LocalDate.parse(dateStr)).orElse(LocalDate.of(1994, 1, 1));
+        List<Pair<Integer, Integer>> quarters = pendingQuarters(LocalDate.now());
+        log.info("{} quarters pending, completed quarters are skipped", quarters.size());
+
+        // Quarters are fetched by a bounded pool, the shared rate limiter keeps the combined request rate within SEC limits
+        int concurrency = Math.max(1, edgarConfig.getFullIndexConcurrency());
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        AtomicInteger completedQuarters = new AtomicInteger();
+        try {
+            List<Future<?>> futures = quarters.stream()
+                    .map(quarter -> executor.submit(() -> {
+                        int year = quarter.getLeft();
+                        int qtr = quarter.getRight();
+                        long startTime = System.currentTimeMillis();
+                        long rows = processQuarter(year, qtr);
+                        log.info("Quarter {} QTR{} {}: {} rows in {} ms ({}/{} quarters done)", year, qtr,
+                                rows >= 0 ? "finished" : "failed", Math.max(rows, 0), System.currentTimeMillis() - startTime,
+                                completedQuarters.incrementAndGet(), quarters.size());
+                    }))
+                    .collect(Collectors.toList());
 
-        int startYear = latestDate.getYear();
-        int startQuarter = (latestDate.getMonthValue() - 1) / 3 + 1;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("Error downloading full index quarter: {}", e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            log.error("Full index download interrupted: {}", e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
 
-        IntStream.range(startYear, currentYear + 1)
+        log.info("Finished downloading full index files");
+    }
+
+    /**
+     * Every quarter from 1994 up to the one containing {@code today}, minus the ones already checkpointed as completed.
+     */
+    List<Pair<Integer, Integer>> pendingQuarters(LocalDate today) {
+        seedCheckpoints();
+        Set<Pair<Integer, Integer>> completed = fullIndexCheckpointRepository.findByStatus(FullIndexCheckpoint.Status.COMPLETED).stream()
+                .map(checkpoint -> Pair.of(checkpoint.getYear(), checkpoint.getQuarter()))
+                .collect(Collectors.toSet());
+
+        int currentYear = today.getYear();
+        int currentQuarter = quarterOf(today);
+        return IntStream.range(FIRST_INDEX_YEAR, currentYear + 1)
                 .boxed()
-                .flatMap(year -> IntStream.range(year == startYear ? startQuarter : 1, 5).mapToObj(q -> Pair.of(year, q)))
-                .map(pair -> String.format("%s/%d/QTR%d/master.idx", edgarConfig.getFullIndexUrl(), pair.getLeft(), pair.getRight()))
-                .forEach(url -> downloadAndProcessMasterIdx(url));
+                .flatMap(year -> IntStream.range(1, year == currentYear ? currentQuarter + 1 : 5).mapToObj(q -> Pair.of(year, q)))
+                .filter(quarter -> !completed.contains(quarter))
+                .collect(Collectors.toList());
+    }
 
-        log.info("Finished downloading full index files");
+    /**
+     * Databases loaded before the checkpoints existed have none, and would reload every quarter since 1994.
+     * The quarters before the one of the latest filing date already stored are checkpointed as completed instead,
+     * the quarter of that date is loaded again as it may have been partial.
+     */
+    private void seedCheckpoints() {
+        if (fullIndexCheckpointRepository.count() > 0) {
+            return;
+        }
+        Optional<String> latestDateFiled = fullIndexRepository.findLatestDateFiled();
+        if (latestDateFiled.isEmpty()) {
+            return;
+        }
+
+        LocalDate latest;
+        try {
+            latest = LocalDate.parse(latestDateFiled.get());
+        } catch (DateTimeParseException e) {
+            log.warn("Cannot seed the full index checkpoints from the latest date filed {}", latestDateFiled.get());
+            return;
+        }
+        int latestQuarter = quarterOf(latest);
+        LocalDateTime now = LocalDateTime.now();
+        List<FullIndexCheckpoint> checkpoints = IntStream.range(FIRST_INDEX_YEAR, latest.getYear() + 1)
+                .boxed()
+                .flatMap(year -> IntStream.range(1, year == latest.getYear() ? latestQuarter : 5)
+                        .mapToObj(quarter -> FullIndexCheckpoint.builder()
+                                .year(year)
+                                .quarter(quarter)
+                                .status(FullIndexCheckpoint.Status.COMPLETED)
+                                .finishedAt(now)
+                                .build()))
+                .collect(Collectors.toList());
+        fullIndexCheckpointRepository.saveAll(checkpoints);
+        log.info("Seeded {} completed full index checkpoints before {} QTR{}, the latest quarter already loaded",
+                checkpoints.size(), latest.getYear(), latestQuarter);
     }
 
     public void downloadIndexForYearAndQuarter(int year, int quarter) {
@@ -74,35 +174,99 @@ public class FilingsDownloadServiceImpl {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quarter must be between 1 and 4");
         }
 
-        String url = String.format("%s/%d/QTR%d/master.idx", edgarConfig.getFullIndexUrl(), year, quarter);
-        downloadAndProcessMasterIdx(url);
+        processQuarter(year, quarter);
         log.info("Finished downloading index file for year {} and quarter {}", year, quarter);
     }
 
-    private void downloadAndProcessMasterIdx(String url) {
+    /**
+     * Downloads a quarter's master.idx and upserts its rows, unless its content hash matches the last run.
+     * The checkpoint is marked completed once the quarter is over, so later runs never fetch it again.
+     *
+     * @return the number of rows in the quarter, or -1 if it could not be loaded
+     */
+    private long processQuarter(int year, int quarter) {
+        FullIndexCheckpoint checkpoint = fullIndexCheckpointRepository.findByYearAndQuarter(year, quarter)
+                .orElseGet(() -> FullIndexCheckpoint.builder().year(year).quarter(quarter).build());
+        String previousHash = checkpoint.getContentHash();
+        checkpoint.setStatus(FullIndexCheckpoint.Status.IN_PROGRESS);
+        checkpoint = fullIndexCheckpointRepository.save(checkpoint);
+
+        String url = String.format("%s/%d/QTR%d/master.idx", edgarConfig.getFullIndexUrl(), year, quarter);
+        Path masterIdxFile = null;
+        try {
+            masterIdxFile = Files.createTempFile("master-" + year + "-QTR" + quarter + "-", ".idx");
+            String contentHash = downloadMasterIdx(url, masterIdxFile);
+            if (contentHash == null) {
+                checkpoint.setStatus(FullIndexCheckpoint.Status.FAILED);
+                fullIndexCheckpointRepository.save(checkpoint);
+                return -1;
+            }
+
+            long rows;
+            if (contentHash.equals(previousHash)) {
+                log.info("master.idx for {} QTR{} is unchanged since the last run, skipping", year, quarter);
+                rows = Optional.ofNullable(checkpoint.getRowCount()).orElse(0L);
+            } else {
+                try (InputStream inputStream = Files.newInputStream(masterIdxFile)) {
+                    rows = parseMasterIdx(inputStream);
+                }
+            }
+
+            LocalDate quarterEnd = LocalDate.of(year, quarter * 3, 1).plusMonths(1);
+            checkpoint.setStatus(LocalDate.now().isBefore(quarterEnd)
+                    ? FullIndexCheckpoint.Status.PARTIAL
+                    : FullIndexCheckpoint.Status.COMPLETED);
+            checkpoint.setRowCount(rows);
+            checkpoint.setContentHash(contentHash);
+            checkpoint.setFinishedAt(LocalDateTime.now());
+            fullIndexCheckpointRepository.save(checkpoint);
+            return rows;
+        } catch (IOException | RuntimeException e) {
+            log.error("Error loading master.idx for {} QTR{}: {}", year, quarter, e.getMessage(), e);
+            checkpoint.setStatus(FullIndexCheckpoint.Status.FAILED);
+            fullIndexCheckpointRepository.save(checkpoint);
+            return -1;
+        } finally {
+            if (masterIdxFile != null) {
+                try {
+                    Files.deleteIfExists(masterIdxFile);
+                } catch (IOException e) {
+                    log.warn("Could not delete temporary file {}", masterIdxFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams the gunzipped master.idx into {@code target}, hashing it on the way, so the file is never held on the heap.
+     *
+     * @return the SHA-256 of the content, or null if the file could not be downloaded after all retries
+     */
+    private String downloadMasterIdx(String url, Path target) {
         int retries = 3;
-        boolean success = false;
-        while (!success && retries > 0) {
+        while (retries > 0) {
             log.info("Downloading master.idx file from URL: {}", url);
             try {
-                ResponseEntity<byte[]> response = restTemplate.execute(url, HttpMethod.GET, null, responseExtractor -> {
-                    if (responseExtractor.getStatusCode() == HttpStatus.OK) {
-                        String contentEncoding = responseExtractor.getHeaders().getFirst("Content-Encoding");
-                        InputStream inputStream = responseExtractor.getBody();
-                        if ("gzip".equalsIgnoreCase(contentEncoding)) {
-                            inputStream = new GZIPInputStream(inputStream);
-                        }
-                        String masterIdxContent = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-                        return new ResponseEntity<>(masterIdxContent.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
-                    } else {
-                        return new ResponseEntity<>(null, responseExtractor.getStatusCode());
+                // The RestTemplate takes the rate limiter token only when the index is not served from the cache
+                String contentHash = restTemplate.execute(url, HttpMethod.GET, null, response -> {
+                    if (response.getStatusCode() != HttpStatus.OK) {
+                        return null;
+                    }
+                    String contentEncoding = response.getHeaders().getFirst("Content-Encoding");
+                    InputStream inputStream = response.getBody();
+                    if ("gzip".equalsIgnoreCase(contentEncoding)) {
+                        inputStream = new GZIPInputStream(inputStream, 64 * 1024);
                     }
+                    MessageDigest digest = sha256();
+                    try (OutputStream outputStream = new DigestOutputStream(Files.newOutputStream(target), digest)) {
+                        inputStream.transferTo(outputStream);
+                    }
+                    return HexFormat.of().formatHex(digest.digest());
                 });
 
-                if (response.getStatusCode() == HttpStatus.OK) {
-                    String masterIdxContent = new String(response.getBody(), StandardCharsets.UTF_8);
-                    parseMasterIdxContent(masterIdxContent);
-                    success = true;
+                if (contentHash != null) {
+                    secRateLimiter.onSuccess();
+                    return contentHash;
                 } else {
                     log.error("Failed to download master.idx from URL: {} Retrying... Remaining retries: {}", url, retries - 1);
                     retries--;
@@ -115,6 +279,9 @@ public class FilingsDownloadServiceImpl {
                     }
                 }
             } catch (RestClientException e) {
+                if (e instanceof HttpStatusCodeException statusCodeException && SecRateLimiter.isThrottled(statusCodeException.getStatusCode())) {
+                    secRateLimiter.backOff();
+                }
                 log.error("Failed to download with error: {}", e.getMessage());
                 log.error("Failed to download master.idx from URL: {} Retrying... Remaining retries: {}", url, retries - 1);
                 retries--;
@@ -127,195 +294,292 @@ public class FilingsDownloadServiceImpl {
                 }
             }
         }
+        return null;
     }
 
-    @Transactional
-    public void parseMasterIdxContent(String masterIdxContent) {
-        log.info("Start parsing master.idx content");
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                new ByteArrayInputStream(masterIdxContent.getBytes(StandardCharsets.UTF_8))))) {
-
-            // Skip header lines until the line that contains "-----"
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.contains("-----")) {
-                    break;
-                }
-            }
+    private static int quarterOf(LocalDate date) {
+        return (date.getMonthValue() - 1) / 3 + 1;
+    }
 
-            List<String[]> rows = reader.lines()
-                    .filter(rowLine -> rowLine.contains(".txt"))
-                    .map(rowLine -> rowLine.strip().split("\\|"))
-                    .collect(Collectors.toList());
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 
-            for (String[] row : rows) {
-                FullIndex fullIndex = FullIndex.builder()
-                        .cik(Long.parseLong(row[0].trim()))
-                        .companyName(row[1].trim())
-                        .formType(row[2].trim())
-                        .dateFiled(row[3].trim())
-                        .filename(row[4].trim())
-                        .build();
-                log.debug("Saving full index entry: {}", fullIndex);
-                fullIndexRepository.save(fullIndex);
-            }
+    // Only used by tests, downloads are parsed straight from the response stream by parseMasterIdx
+    void parseMasterIdxContent(String masterIdxContent) {
+        try {
+            parseMasterIdx(new ByteArrayInputStream(masterIdxContent.getBytes(StandardCharsets.UTF_8)));
         } catch (IOException e) {
             throw new RuntimeException("Error parsing master.idx content", e);
         }
-        log.info("Finished parsing master.idx content");
     }
 
+    /**
+     * Parses master.idx rows as they are read and writes them in JDBC batches of {@code edgar.full-index-batch-size}.
+     *
+     * @return the number of rows written
+     */
+    public long parseMasterIdx(InputStream inputStream) throws IOException {
+        log.info("Start parsing master.idx content");
+        int batchSize = edgarConfig.getFullIndexBatchSize();
+        long startTime = System.nanoTime();
+        long totalRows = 0;
 
-    public String downloadFilingsOfType(String filingType) {
-        log.info("Start downloading {} filings", filingType);
-
-        List<FullIndex> targetFilings = fullIndexRepository.findByFormType(filingType);
-        int newFilings = 0;
-        int existingFilings = 0;
-
-        for (int i = 0; i < targetFilings.size(); i++) {
-            FullIndex row = targetFilings.get(i);
-            log.info("{} out of {}", i, targetFilings.size());
-
-            String cik = String.valueOf(row.getCik());
-            String date = row.getDateFiled().toString();
-            String year = date.split("-")[0].trim();
-            String month = date.split("-")[1].trim();
-            String url = row.getFilename().trim();
-            String accession = url.split("\\.")[0].split("-")[url.split("\\.")[0].split("-").length - 1];
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
 
-            Path folderPath = Paths.get(edgarConfig.getFilingsFolder(), filingType, year + "_" + month);
-            folderPath.toFile().mkdirs();
+        // Skip header lines until the line that contains "-----"
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.contains("-----")) {
+                break;
+            }
+        }
 
-            String filePath = String.format("%s/%s/%s_%s/%s_%s_%s.txt", edgarConfig.getFilingsFolder(), filingType, year, month, cik, date, accession);
-            File file = new File(filePath);
-            if (file.exists()) {
-                existingFilings++;
+        List<FullIndex> batch = new ArrayList<>(batchSize);
+        while ((line = reader.readLine()) != null) {
+            FullIndex fullIndex = parseMasterIdxRow(line);
+            if (fullIndex == null) {
                 continue;
             }
+            batch.add(fullIndex);
+            if (batch.size() >= batchSize) {
+                totalRows += fullIndexRepository.batchUpsert(batch);
+                batch.clear();
+            }
+        }
+        totalRows += fullIndexRepository.batchUpsert(batch);
 
-            ResponseEntity<byte[]> response = restTemplate.getForEntity(edgarConfig.getBaseUrl() + url, byte[].class);
-            if (response.getStatusCode() == HttpStatus.OK) {
-                try {
-                    String contentEncoding = response.getHeaders().getFirst("Content-Encoding");
-                    byte[] responseBody = response.getBody();
-                    String content;
-
-                    if (contentEncoding != null && contentEncoding.equalsIgnoreCase("gzip")) {
-                        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(responseBody);
-                        GZIPInputStream gzipInputStream = new GZIPInputStream(byteArrayInputStream);
-                        content = IOUtils.toString(gzipInputStream, StandardCharsets.UTF_8);
-                    } else {
-                        content = new String(responseBody, StandardCharsets.UTF_8);
-                    }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1_000_000);
+        log.info("Finished parsing master.idx content: {} rows in {} ms ({} rows/sec)",
+                totalRows, elapsedMillis, totalRows * 1000 / elapsedMillis);
+        return totalRows;
+    }
 
-                    try (FileWriter fileWriter = new FileWriter(file)) {
-                        fileWriter.write(content);
-                        newFilings++;
-                    } catch (Exception e) {
-                        log.error("{}: {} failed to download", cik, date, e);
-                    }
-                } catch (IOException e) {
-                    log.error("Error decompressing content: {}", e.getMessage(), e);
-                }
-            } else {
-                log.error("{}: {} failed to download", cik, date);
-            }
+    private FullIndex parseMasterIdxRow(String line) {
+        if (!line.contains(".txt")) {
+            return null;
         }
-        log.info("Finished downloading {} filings", filingType);
-        log.info("New filings: {}, Existing filings: {}", newFilings, existingFilings);
-        return "Downloaded " + newFilings + " new filings and found " + existingFilings + " existing filings for " + filingType + ".";
+        String[] row = line.strip().split("\\|");
+        if (row.length < 5) {
+            log.warn("Skipping malformed master.idx row: {}", line);
+            return null;
+        }
+        return FullIndex.builder()
+                .cik(Long.parseLong(row[0].trim()))
+                .companyName(row[1].trim())
+                .formType(row[2].trim())
+                .dateFiled(row[3].trim())
+                .filename(row[4].trim())
+                .build();
     }
 
-    public String downloadFilingsOfType13() {
-        log.info("Start downloading filings containing 13 in form type");
 
-        Set<String> allFormTypes = fullIndexRepository.findDistinctFormTypes();
-        Set<String> targetFormTypes = allFormTypes.stream()
-                .filter(formType -> formType.contains("13"))
-                .collect(Collectors.toSet());
+    public FilingDownloadProgress getDownloadProgress() {
+        return downloadProgress;
+    }
 
-        StringBuilder result = new StringBuilder();
-        int totalNewFilings = 0;
-        int totalExistingFilings = 0;
+    public FilingDownloadResult downloadFilingsOfType(String filingType) {
+        return downloadFilings(List.of(filingType)).getResults().get(0);
+    }
 
-        for (String formType : targetFormTypes) {
-            String downloadResult = downloadFilingsOfType(formType);
-            result.append(downloadResult).append(System.lineSeparator());
+    /**
+     * Downloads the filings of all the given form types through one shared pool. Their index rows are submitted
+     * round-robin, so small form types are not stuck behind large ones and the whole rate budget stays in use.
+     */
+    public FilingsDownloadReport downloadFilings(List<String> formTypes) {
+        log.info("Start downloading {} filings", formTypes);
+        long startTime = System.currentTimeMillis();
+
+        Map<String, FormTypeCounters> counters = new LinkedHashMap<>();
+        List<Pair<FormTypeCounters, Iterator<FilingIndexEntry>>> sources = new ArrayList<>();
+        for (String formType : formTypes) {
+            FormTypeCounters formCounters = new FormTypeCounters(formType, fullIndexRepository.countByFormType(formType));
+            counters.put(formType, formCounters);
+            sources.add(Pair.of(formCounters, new FullIndexPageIterator(fullIndexRepository, formType, edgarConfig.getFullIndexPageSize())));
+        }
 
-            String[] parts = downloadResult.split("\\s+");
-            int newFilings = Integer.parseInt(parts[2]);
-            int existingFilings = Integer.parseInt(parts[8]);
+        int concurrency = Math.max(1, edgarConfig.getFilingsDownloadConcurrency());
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        // Bounds the queued downloads so the submitting loop cannot run far ahead of the workers
+        Semaphore slots = new Semaphore(concurrency * 4);
+        try {
+            while (!sources.isEmpty()) {
+                Iterator<Pair<FormTypeCounters, Iterator<FilingIndexEntry>>> round = sources.iterator();
+                while (round.hasNext()) {
+                    Pair<FormTypeCounters, Iterator<FilingIndexEntry>> source = round.next();
+                    FormTypeCounters formCounters = source.getLeft();
+                    Iterator<FilingIndexEntry> entries = source.getRight();
+                    if (!entries.hasNext()) {
+                        formCounters.touch();
+                        round.remove();
+                        continue;
+                    }
+                    FilingIndexEntry entry = entries.next();
+                    FilingKey key = FilingKey.of(entry);
+                    if (filingManifest.contains(key)) {
+                        formCounters.existing.incrementAndGet();
+                        downloadProgress.getExisting().incrementAndGet();
+                        continue;
+                    }
+                    // Only filings missing from the manifest reach the store, most of them are about to be downloaded anyway
+                    if (filingStore.exists(key)) {
+                        filingManifest.add(key);
+                        formCounters.existing.incrementAndGet();
+                        downloadProgress.getExisting().incrementAndGet();
+                        continue;
+                    }
 
-            totalNewFilings += newFilings;
-            totalExistingFilings += existingFilings;
+                    slots.acquire();
+                    downloadProgress.getQueued().incrementAndGet();
+                    executor.execute(() -> {
+                        downloadProgress.getQueued().decrementAndGet();
+                        downloadProgress.getInFlight().incrementAndGet();
+                        try {
+                            long bytes = downloadFiling(entry.getFilename().trim(), key);
+                            if (bytes >= 0) {
+                                filingManifest.add(key);
+                                formCounters.downloaded.incrementAndGet();
+                                formCounters.bytes.addAndGet(bytes);
+                                downloadProgress.getDone().incrementAndGet();
+                            } else {
+                                formCounters.failed.incrementAndGet();
+                                downloadProgress.getFailed().incrementAndGet();
+                            }
+                        } finally {
+                            formCounters.touch();
+                            downloadProgress.getInFlight().decrementAndGet();
+                            slots.release();
+                        }
+                        if ((formCounters.downloaded.get() + formCounters.failed.get()) % PROGRESS_LOG_INTERVAL == 0) {
+                            log.info("{} filings of {}: {}", formCounters.formType, formCounters.total, downloadProgress);
+                        }
+                    });
+                }
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            log.error("Download of {} filings interrupted: {}", formTypes, e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
         }
 
-        log.info("Finished downloading filings containing 13 in form type");
-        result.append("Total new filings: ").append(totalNewFilings)
-                .append(", Total existing filings: ").append(totalExistingFilings)
-                .append(" for forms containing 13.");
-
-        return result.toString();
+        List<FilingDownloadResult> results = counters.values().stream()
+                .map(formCounters -> formCounters.toResult(startTime))
+                .collect(Collectors.toList());
+        results.forEach(result -> log.info("Finished downloading {} filings, new: {}, existing: {}, failed: {}, bytes: {}",
+                result.getFormType(), result.getNewFilings(), result.getExistingFilings(), result.getFailedFilings(), result.getBytes()));
+        return FilingsDownloadReport.of(results, System.currentTimeMillis() - startTime);
     }
 
+    /**
+     * Downloads one filing under the shared rate limit, backing off and retrying when the SEC throttles the request.
+     *
+     * @return the number of bytes written to the filing store, or -1 if the filing could not be downloaded
+     */
+    private long downloadFiling(String url, FilingKey key) {
+        Long cik = key.getCik();
+        String date = key.getDateFiled();
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            try {
+                Long written = restTemplate.execute(edgarConfig.getBaseUrl() + url, HttpMethod.GET, null, response -> {
+                    if (response.getStatusCode() != HttpStatus.OK) {
+                        log.error("{}: {} failed to download with status {}", cik, date, response.getStatusCode());
+                        return -1L;
+                    }
+                    String contentEncoding = response.getHeaders().getFirst("Content-Encoding");
+                    InputStream inputStream = response.getBody();
+                    if ("gzip".equalsIgnoreCase(contentEncoding)) {
+                        inputStream = new GZIPInputStream(inputStream, 64 * 1024);
+                    }
+                    CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+                    filingStore.write(key, countingInputStream);
+                    return countingInputStream.getByteCount();
+                });
+                secRateLimiter.onSuccess();
+                return written != null ? written : -1;
+            } catch (HttpStatusCodeException e) {
+                if (SecRateLimiter.isThrottled(e.getStatusCode())) {
+                    log.warn("{}: {} throttled with status {} (attempt {}/3)", cik, date, e.getStatusCode(), attempt);
+                    secRateLimiter.backOff();
+                    continue;
+                }
+                log.error("{}: {} failed to download: {}", cik, date, e.getMessage());
+                return -1;
+            } catch (RestClientException e) {
+                log.error("{}: {} failed to download: {}", cik, date, e.getMessage(), e);
+                return -1;
+            }
+        }
+        log.error("{}: {} failed to download, still throttled after 3 attempts", cik, date);
+        return -1;
+    }
 
-    public void generateMappings(List<String> csvFiles) {
-        log.info("Start generating mappings");
+    /**
+     * Rebuilds the manifest of downloaded filings from what is actually in the filing store.
+     *
+     * @return the number of filings found
+     */
+    public int reconcileFilingManifest() {
+        try {
+            return filingManifest.reconcile();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to rebuild the filings manifest", e);
+        }
+    }
 
-        ArrayList<String[]> dataFrames = new ArrayList<>();
+    public FilingsDownloadReport downloadFilingsOfType13() {
+        log.info("Start downloading filings containing 13 in form type");
 
-        csvFiles.forEach(csvFile -> {
-            Try<List<String[]>> recordsTry = readCsvFile(csvFile);
-            recordsTry.onSuccess(records -> dataFrames.addAll(records));
-        });
+        Set<String> allFormTypes = fullIndexRepository.findDistinctFormTypes();
+        List<String> targetFormTypes = allFormTypes.stream()
+                .filter(formType -> formType.contains("13"))
+                .sorted()
+                .collect(Collectors.toList());
 
-        List<String[]> filteredData = filterAndTransformData(dataFrames.stream());
+        FilingsDownloadReport report = downloadFilings(targetFormTypes);
 
-        // Save the filtered data to the CikCusipMaps table
-        saveFilteredDataToTable(filteredData);
-        log.info("Finished generating mappings");
+        log.info("Finished downloading filings containing 13 in form type");
+        log.info("Total new filings: {}, Total existing filings: {}, Total failed filings: {} for forms containing 13",
+                report.getTotalNewFilings(), report.getTotalExistingFilings(), report.getTotalFailedFilings());
+        return report;
     }
 
-    @Transactional
-    private void saveFilteredDataToTable(List<String[]> filteredData) {
-        for (String[] row : filteredData) {
-            Long cik = Long.parseLong(row[0].trim());
-            String cusip6 = row[1].trim();
-            String cusip8 = row[2].trim();
-
-            CikCusipMaps cikCusipMaps = CikCusipMaps.builder()
-                    .cik(cik)
-                    .cusip6(cusip6)
-                    .cusip8(cusip8)
-                    .build();
-
-            cikCusipMapsRepository.save(cikCusipMaps);
+    /**
+     * Counters of one form type within a download job, updated concurrently by the download workers.
+     */
+    private static class FormTypeCounters {
+        private final String formType;
+        private final long total;
+        private final AtomicLong downloaded = new AtomicLong();
+        private final AtomicLong existing = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong lastActivity = new AtomicLong(System.currentTimeMillis());
+
+        private FormTypeCounters(String formType, long total) {
+            this.formType = formType;
+            this.total = total;
         }
-    }
 
-    private Try<List<String[]>> readCsvFile(String csvFile) {
-        return Try.of(() -> {
-            try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
-                return reader.lines()
-                        .skip(1) // Skip header
-                        .map(line -> line.split(","))
-                        .collect(Collectors.toList());
-            }
-        });
-    }
+        private void touch() {
+            lastActivity.accumulateAndGet(System.currentTimeMillis(), Math::max);
+        }
 
-    private List<String[]> filterAndTransformData(java.util.stream.Stream<String[]> dataStream) {
-        return dataStream
-                .filter(columns -> columns[2].length() == 6 || columns[2].length() == 8 || columns[2].length() == 9)
-                .filter(columns -> !columns[2].startsWith("000000") && !columns[2].startsWith("0001pt"))
-                .map(columns -> {
-                    String cusip6 = columns[2].substring(0, 6);
-                    String cusip8 = columns[2].substring(0, 8);
-                    return new String[]{columns[1], cusip6, cusip8};
-                })
-                .distinct()
-                .collect(Collectors.toList());
+        private FilingDownloadResult toResult(long startTime) {
+            return FilingDownloadResult.builder()
+                    .formType(formType)
+                    .newFilings(downloaded.get())
+                    .existingFilings(existing.get())
+                    .failedFilings(failed.get())
+                    .bytes(bytes.get())
+                    .durationMillis(lastActivity.get() - startTime)
+                    .build();
+        }
     }
-
 }
@@ -0,0 +1,56 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.FilingIndexEntry;
+import com.jds.edgar.cik.download.repository.FullIndexRepository;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the full index rows of one form type in id order, one keyset page at a time,
+ * so only a single page of projections is ever held in memory.
+ */
+class FullIndexPageIterator implements Iterator<FilingIndexEntry> {
+
+    private final FullIndexRepository fullIndexRepository;
+    private final String formType;
+    private final int pageSize;
+
+    private List<FilingIndexEntry> page = List.of();
+    private int position;
+    private long lastId;
+    private boolean lastPage;
+
+    FullIndexPageIterator(FullIndexRepository fullIndexRepository, String formType, int pageSize) {
+        this.fullIndexRepository = fullIndexRepository;
+        this.formType = formType;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (position < page.size()) {
+            return true;
+        }
+        if (lastPage) {
+            return false;
+        }
+        page = fullIndexRepository.findPageByFormType(formType, lastId, PageRequest.ofSize(pageSize));
+        position = 0;
+        lastPage = page.size() < pageSize;
+        if (!page.isEmpty()) {
+            lastId = page.get(page.size() - 1).getId();
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public FilingIndexEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(position++);
+    }
+}
@@ -0,0 +1,85 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide token bucket that keeps the total request rate against sec.gov under the fair-access limit.
+ * The bucket holds a single token refilled at evenly spaced intervals, so requests are spread over the second and
+ * a cold start or an idle period never lets a burst above the limit through.
+ * Every SEC request, whatever thread issues it, must call {@link #acquire()} first. The {@code RestTemplate} does it in
+ * {@code HttpResponseCacheInterceptor} for the requests not served from the cache, its callers must not call it again.
+ * When the SEC answers 429 or 503, {@link #backOff()} pauses all callers with an exponentially growing delay.
+ */
+@Slf4j
+@Component
+public class SecRateLimiter {
+
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final Bucket bucket;
+    private final long initialBackoffMillis;
+    private final AtomicLong pausedUntil = new AtomicLong();
+    private final AtomicInteger consecutiveBackoffs = new AtomicInteger();
+
+    public SecRateLimiter(EdgarConfig edgarConfig) {
+        int requestsPerSecond = edgarConfig.getMaxRequestsPerSecond();
+        this.bucket = Bucket.builder()
+                .addLimit(Bandwidth.classic(1, Refill.intervally(1, Duration.ofNanos(TimeUnit.SECONDS.toNanos(1) / requestsPerSecond))))
+                .build();
+        this.initialBackoffMillis = edgarConfig.getRetryDelay();
+        log.info("SEC requests limited to {} per second", requestsPerSecond);
+    }
+
+    /**
+     * Waits for the back-off pause, if any, and for a token.
+     *
+     * @throws IllegalStateException if the thread is interrupted while waiting, the request must not be sent then
+     */
+    public void acquire() {
+        try {
+            long pause;
+            while ((pause = pausedUntil.get() - System.currentTimeMillis()) > 0) {
+                Thread.sleep(pause);
+            }
+            bucket.asBlocking().consume(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to send a request to the SEC", e);
+        }
+    }
+
+    public static boolean isThrottled(HttpStatusCode statusCode) {
+        return statusCode.value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || statusCode.value() == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    public void backOff() {
+        long now = System.currentTimeMillis();
+        // Requests that were already in flight when the pause started must not escalate it further
+        if (pausedUntil.get() > now) {
+            return;
+        }
+        int attempt = consecutiveBackoffs.incrementAndGet();
+        long delay = Math.min(MAX_BACKOFF_MILLIS, initialBackoffMillis << Math.min(attempt - 1, 10));
+        pausedUntil.accumulateAndGet(now + delay, Math::max);
+        log.warn("SEC is throttling requests, pausing all requests for {} ms", delay);
+    }
+
+    public void onSuccess() {
+        if (consecutiveBackoffs.get() > 0) {
+            consecutiveBackoffs.set(0);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
+import com.jds.edgar.cik.download.repository.SqlDialect;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports {@code stocks}, {@code cik_cusip_maps} and optionally {@code full_index} as Arrow IPC files for bulk loaders.
+ * <p>
+ * Each table is streamed from a database cursor into record batches of {@value #BATCH_SIZE} rows, compressed with
+ * ZSTD. Low cardinality text columns such as sector, exchange or form type are dictionary encoded. The IPC file format
+ * needs every dictionary before the first batch, so their values are read in a first pass over the table, in the
+ * same repeatable read transaction as the rows, and compared exactly rather than with the collation of the database.
+ * A value missing from its dictionary fails the export instead of being written as null.
+ * Files are written next to the published ones and moved over them once complete, so downloads never see a
+ * partial snapshot. Snapshots are rebuilt in the background after every {@link StockDataChangedEvent}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotExportServiceImpl {
+
+    public static final List<String> TABLES = List.of("stocks", "cik_cusip_maps", "full_index");
+    private static final int BATCH_SIZE = 64 * 1024;
+
+    enum ColumnType {LONG, STRING, DICTIONARY}
+
+    record Column(String name, ColumnType type) {
+    }
+
+    private static final Map<String, List<Column>> COLUMNS = Map.of(
+            "stocks", List.of(
+                    new Column("cik", ColumnType.LONG),
+                    new Column("ticker", ColumnType.STRING),
+                    new Column("name", ColumnType.STRING),
+                    new Column("exchange", ColumnType.DICTIONARY),
+                    new Column("sic", ColumnType.DICTIONARY),
+                    new Column("sector", ColumnType.DICTIONARY),
+                    new Column("cusip6", ColumnType.STRING),
+                    new Column("cusip8", ColumnType.STRING)),
+            "cik_cusip_maps", List.of(
+                    new Column("cik", ColumnType.LONG),
+                    new Column("cusip6", ColumnType.STRING),
+                    new Column("cusip8", ColumnType.STRING)),
+            "full_index", List.of(
+                    new Column("cik", ColumnType.LONG),
+                    new Column("company_name", ColumnType.STRING),
+                    new Column("form_type", ColumnType.DICTIONARY),
+                    new Column("date_filed", ColumnType.DICTIONARY),
+                    new Column("filename", ColumnType.STRING)));
+
+    private final EdgarConfig edgarConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (snapshotFile("stocks").isEmpty()) {
+            requestRebuild("startup");
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataChanged(StockDataChangedEvent event) {
+        requestRebuild(event.getSource());
+    }
+
+    public void requestRebuild(String source) {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            log.debug("Snapshot export requested by {}", source);
+            rebuildExecutor.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    exportSnapshots();
+                } catch (IOException | RuntimeException e) {
+                    log.error("Failed to export the snapshots, keeping the previous ones", e);
+                }
+            });
+        }
+    }
+
+    public void exportSnapshots() throws IOException {
+        Path folder = Path.of(edgarConfig.getSnapshotFolder());
+        Files.createDirectories(folder);
+        for (String table : TABLES) {
+            if (table.equals("full_index") && !Boolean.TRUE.equals(edgarConfig.getSnapshotIncludeFullIndex())) {
+                continue;
+            }
+            long startTime = System.currentTimeMillis();
+            Path target = folder.resolve(table + ".arrow");
+            Path part = folder.resolve(table + ".arrow.part");
+            long rows = exportTable(table, part);
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Exported {} rows of {} to {} ({} bytes) in {} ms", rows, table, target, Files.size(target),
+                    System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * @return the published snapshot of the table, if it was exported
+     */
+    public Optional<Path> snapshotFile(String table) {
+        if (!TABLES.contains(table)) {
+            return Optional.empty();
+        }
+        Path file = Path.of(edgarConfig.getSnapshotFolder(), table + ".arrow");
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    long exportTable(String table, Path file) throws IOException {
+        // Both passes over the table must see the same rows, or a value written in between would miss its dictionary
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        transactionTemplate.setReadOnly(true);
+        try {
+            Long rows = transactionTemplate.execute(status -> {
+                try {
+                    return writeTable(table, file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return rows == null ? 0 : rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long writeTable(String table, Path file) throws IOException {
+        List<Column> columns = COLUMNS.get(table);
+        try (BufferAllocator allocator = new RootAllocator()) {
+            DictionaryProvider.MapDictionaryProvider provider = new DictionaryProvider.MapDictionaryProvider();
+            Map<String, Map<String, Integer>> dictionaryIndexes = new HashMap<>();
+            List<Field> fields = new ArrayList<>();
+            Map<String, TreeSet<String>> dictionaryValues = readDictionaryValues(table, columns);
+            long dictionaryId = 0;
+            for (Column column : columns) {
+                switch (column.type()) {
+                    case LONG -> fields.add(Field.nullable(column.name(), new ArrowType.Int(64, true)));
+                    case STRING -> fields.add(Field.nullable(column.name(), ArrowType.Utf8.INSTANCE));
+                    case DICTIONARY -> {
+                        DictionaryEncoding encoding = new DictionaryEncoding(dictionaryId++, false, new ArrowType.Int(32, true));
+                        dictionaryIndexes.put(column.name(), createDictionary(column.name(), dictionaryValues.get(column.name()),
+                                encoding, allocator, provider));
+                        fields.add(new Field(column.name(), new FieldType(true, encoding.getIndexType(), encoding), null));
+                    }
+                }
+            }
+
+            try (VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields), allocator);
+                 FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 ArrowFileWriter writer = new ArrowFileWriter(root, provider, channel, Map.of(), IpcOption.DEFAULT,
+                         CommonsCompressionFactory.INSTANCE, CompressionUtil.CodecType.ZSTD)) {
+                writer.start();
+                root.allocateNew();
+                long[] rows = {0};
+                int[] batchRows = {0};
+                String sql = "SELECT " + String.join(", ", columns.stream().map(Column::name).toList()) + " FROM " + table
+                        + " ORDER BY " + (table.equals("stocks") ? "cik, ticker" : "id");
+                try {
+                    jdbcTemplate.query(connection -> SqlDialect.prepareStreaming(connection, sql),
+                            resultSet -> {
+                                int row = batchRows[0];
+                                for (int i = 0; i < columns.size(); i++) {
+                                    Column column = columns.get(i);
+                                    switch (column.type()) {
+                                        case LONG -> {
+                                            long value = resultSet.getLong(i + 1);
+                                            BigIntVector vector = (BigIntVector) root.getVector(i);
+                                            if (resultSet.wasNull()) {
+                                                vector.setNull(row);
+                                            } else {
+                                                vector.setSafe(row, value);
+                                            }
+                                        }
+                                        case STRING -> {
+                                            String value = resultSet.getString(i + 1);
+                                            VarCharVector vector = (VarCharVector) root.getVector(i);
+                                            if (value == null) {
+                                                vector.setNull(row);
+                                            } else {
+                                                vector.setSafe(row, value.getBytes(StandardCharsets.UTF_8));
+                                            }
+                                        }
+                                        case DICTIONARY -> {
+                                            String value = resultSet.getString(i + 1);
+                                            IntVector vector = (IntVector) root.getVector(i);
+                                            if (value == null) {
+                                                vector.setNull(row);
+                                            } else {
+                                                Integer index = dictionaryIndexes.get(column.name()).get(value);
+                                                if (index == null) {
+                                                    throw new IllegalStateException("Value '" + value + "' of " + table + "."
+                                                            + column.name() + " is missing from its dictionary");
+                                                }
+                                                vector.setSafe(row, index);
+                                            }
+                                        }
+                                    }
+                                }
+                                rows[0]++;
+                                if (++batchRows[0] == BATCH_SIZE) {
+                                    writeBatch(root, writer, batchRows[0]);
+                                    batchRows[0] = 0;
+                                }
+                            });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                if (batchRows[0] > 0 || rows[0] == 0) {
+                    writeBatch(root, writer, batchRows[0]);
+                }
+                writer.end();
+                return rows[0];
+            } finally {
+                for (long id : provider.getDictionaryIds()) {
+                    provider.lookup(id).getVector().close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams the dictionary encoded columns of the table once, keeping every distinct value as returned by the driver.
+     * {@code SELECT DISTINCT} would merge the values its collation considers equal, such as case or trailing space
+     * variants, and the rows holding the others would find no entry.
+     */
+    private Map<String, TreeSet<String>> readDictionaryValues(String table, List<Column> columns) {
+        List<String> names = columns.stream().filter(column -> column.type() == ColumnType.DICTIONARY).map(Column::name).toList();
+        Map<String, TreeSet<String>> values = new HashMap<>();
+        names.forEach(name -> values.put(name, new TreeSet<>()));
+        if (names.isEmpty()) {
+            return values;
+        }
+        String sql = "SELECT " + String.join(", ", names) + " FROM " + table;
+        jdbcTemplate.query(connection -> SqlDialect.prepareStreaming(connection, sql), resultSet -> {
+            for (int i = 0; i < names.size(); i++) {
+                String value = resultSet.getString(i + 1);
+                if (value != null) {
+                    values.get(names.get(i)).add(value);
+                }
+            }
+        });
+        return values;
+    }
+
+    private static Map<String, Integer> createDictionary(String column, TreeSet<String> values, DictionaryEncoding encoding,
+                                                         BufferAllocator allocator, DictionaryProvider.MapDictionaryProvider provider) {
+        VarCharVector dictionaryVector = new VarCharVector(column + "_dictionary", allocator);
+        dictionaryVector.allocateNew(values.size());
+        Map<String, Integer> indexes = new HashMap<>(values.size() * 2);
+        for (String value : values) {
+            int index = indexes.size();
+            dictionaryVector.setSafe(index, value.getBytes(StandardCharsets.UTF_8));
+            indexes.put(value, index);
+        }
+        dictionaryVector.setValueCount(values.size());
+        provider.put(new Dictionary(dictionaryVector, encoding));
+        return indexes;
+    }
+
+    private static void writeBatch(VectorSchemaRoot root, ArrowFileWriter writer, int rowCount) {
+        root.setRowCount(rowCount);
+        try {
+            writer.writeBatch();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        root.allocateNew();
+    }
+
+    @PreDestroy
+    public void close() {
+        rebuildExecutor.shutdownNow();
+    }
+}
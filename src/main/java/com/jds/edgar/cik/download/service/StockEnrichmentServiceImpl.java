@@ -1,35 +1,35 @@
 package com.jds.edgar.cik.download.service;
 
-import com.jds.edgar.cik.download.model.CikCusipMaps;
-import com.jds.edgar.cik.download.model.Stock;
-import com.jds.edgar.cik.download.repository.CikCusipMapsRepository;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
 import com.jds.edgar.cik.download.repository.StockRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class StockEnrichmentServiceImpl {
     private final StockRepository stockCikRepository;
-    private final CikCusipMapsRepository cikCusipMapsRepository;
-
-    public void enrichStockWithCusips() {
-        List<Stock> stockCiks = stockCikRepository.findAll();
-        List<CikCusipMaps> cikCusipMaps = cikCusipMapsRepository.findAll();
-
-        for (Stock stockCik : stockCiks) {
-            CikCusipMaps matchingCikCusipMap = cikCusipMaps.stream()
-                    .filter(cikCusipMap -> cikCusipMap.getCik().equals(stockCik.getCik()))
-                    .findFirst()
-                    .orElse(null);
+    private final StockLookupCache stockLookupCache;
+    private final ApplicationEventPublisher eventPublisher;
 
-            if (matchingCikCusipMap != null) {
-                stockCik.setCusip6(matchingCikCusipMap.getCusip6());
-                stockCik.setCusip8(matchingCikCusipMap.getCusip8());
-                stockCikRepository.save(stockCik);
-            }
+    /**
+     * Joins the stocks with the CIK to CUSIP mappings in the database, rather than loading both tables.
+     *
+     * @return the number of stocks whose CUSIP changed
+     */
+    @Transactional
+    public int enrichStockWithCusips() {
+        long startTime = System.currentTimeMillis();
+        int updated = stockCikRepository.updateCusipsFromMaps();
+        if (updated > 0) {
+            stockLookupCache.invalidateAll();
+            eventPublisher.publishEvent(new StockDataChangedEvent("CUSIP_ENRICH"));
         }
+        log.info("Enriched {} stocks with CUSIPs in {} ms", updated, System.currentTimeMillis() - startTime);
+        return updated;
     }
 }
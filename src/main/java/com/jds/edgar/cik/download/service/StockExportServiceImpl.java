@@ -0,0 +1,177 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.repository.SqlDialect;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the stocks as CSV straight from a database cursor.
+ * <p>
+ * The query is prepared by {@link SqlDialect#prepareStreaming} so the driver streams the rows instead of reading
+ * the whole table into memory first. Rows are written through a single reused buffer, fields containing commas,
+ * quotes or line breaks are quoted.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockExportServiceImpl {
+
+    public enum Column {
+        CIK("CIK", "cik"),
+        TICKER("Ticker", "ticker"),
+        NAME("Name", "name"),
+        SECTOR("Sector", "sector"),
+        SIC("SIC", "sic"),
+        EXCHANGE("Exchange", "exchange"),
+        CUSIP6("CUSIP6", "cusip6"),
+        CUSIP8("CUSIP8", "cusip8");
+
+        private final String header;
+        private final String dbColumn;
+
+        Column(String header, String dbColumn) {
+            this.header = header;
+            this.dbColumn = dbColumn;
+        }
+    }
+
+    public static final List<Column> DEFAULT_COLUMNS = List.of(Column.CIK, Column.TICKER, Column.NAME, Column.SECTOR, Column.SIC);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param columns column names, case-insensitive, or null for the default columns
+     * @throws ResponseStatusException if a column is unknown
+     */
+    public static List<Column> parseColumns(List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            return DEFAULT_COLUMNS;
+        }
+        List<Column> parsed = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            try {
+                parsed.add(Column.valueOf(column.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown column " + column + ", expected one of " + Arrays.toString(Column.values()));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Writes the header and every stock matching the non-null filters, ordered by CIK and ticker.
+     *
+     * @return the number of stocks written
+     */
+    public long exportCsv(List<Column> columns, String sector, String sic, String exchange, Writer writer) throws IOException {
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(columns.stream().map(column -> column.dbColumn).collect(Collectors.joining(", ")))
+                .append(" FROM stocks WHERE 1 = 1");
+        appendFilter(sql, parameters, "sector", sector);
+        appendFilter(sql, parameters, "sic", sic);
+        appendFilter(sql, parameters, "exchange", exchange);
+        sql.append(" ORDER BY cik, ticker");
+
+        LineBuffer line = new LineBuffer();
+        for (int i = 0; i < columns.size(); i++) {
+            appendField(line.builder, i, columns.get(i).header);
+        }
+        line.writeTo(writer);
+        writer.flush();
+
+        long startTime = System.currentTimeMillis();
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = SqlDialect.prepareStreaming(connection, sql.toString());
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                return statement;
+            }, resultSet -> {
+                for (int i = 0; i < columns.size(); i++) {
+                    appendField(line.builder, i, resultSet.getString(i + 1));
+                }
+                try {
+                    line.writeTo(writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Exported {} stocks in {} ms", rows[0], System.currentTimeMillis() - startTime);
+        return rows[0];
+    }
+
+    /**
+     * Line being built and the char array it is copied into for writing, both reused for every row.
+     */
+    private static class LineBuffer {
+        private final StringBuilder builder = new StringBuilder(256);
+        private char[] chars = new char[256];
+
+        private void writeTo(Writer writer) throws IOException {
+            builder.append('\n');
+            int length = builder.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            builder.getChars(0, length, chars, 0);
+            builder.setLength(0);
+            writer.write(chars, 0, length);
+        }
+    }
+
+    private static void appendFilter(StringBuilder sql, List<Object> parameters, String column, String value) {
+        if (value != null) {
+            sql.append(" AND ").append(column).append(" = ?");
+            parameters.add(value);
+        }
+    }
+
+    static void appendField(StringBuilder line, int index, String value) {
+        if (index > 0) {
+            line.append(',');
+        }
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,125 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.CikCusipMaps;
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.util.LongIntHashMap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable snapshot of the stocks, indexed by CIK, ticker, CUSIP6 and CUSIP8.
+ * <p>
+ * Stocks are held in one array ordered by CIK and ticker, the indexes map each key to an offset in it. The CIK
+ * index is a primitive map pointing at the first stock of the CIK, its other tickers follow it. CUSIPs come from
+ * the stocks themselves first, then from the CIK to CUSIP mappings in id order, so the first mapping of a CUSIP wins.
+ * Tickers are matched case-insensitively, like the database collation does: they are upper-cased both when indexed
+ * and when looked up.
+ * <p>
+ * A snapshot is never modified once built, so any number of threads can read it without locking.
+ * The stocks it returns are shared and must not be modified.
+ */
+public final class StockIndex {
+
+    private final Stock[] stocks;
+    private final LongIntHashMap offsetsByCik;
+    private final Map<String, Integer> offsetsByTicker;
+    private final Map<String, Integer> offsetsByCusip6;
+    private final Map<String, Integer> offsetsByCusip8;
+    private final long builtAt;
+
+    public StockIndex(List<Stock> stocks, List<CikCusipMaps> mappings) {
+        this.stocks = stocks.stream()
+                .sorted(Comparator.comparing(Stock::getCik).thenComparing(Stock::getTicker))
+                .toArray(Stock[]::new);
+        this.offsetsByCik = new LongIntHashMap(this.stocks.length);
+        Map<String, Integer> tickers = new HashMap<>(this.stocks.length * 2);
+        Map<String, Integer> cusip6s = new HashMap<>();
+        Map<String, Integer> cusip8s = new HashMap<>();
+
+        for (int offset = 0; offset < this.stocks.length; offset++) {
+            Stock stock = this.stocks[offset];
+            offsetsByCik.putIfAbsent(stock.getCik(), offset);
+            putIfPresent(tickers, normalizeTicker(stock.getTicker()), offset);
+            putIfPresent(cusip6s, stock.getCusip6(), offset);
+            putIfPresent(cusip8s, stock.getCusip8(), offset);
+        }
+        mappings.stream()
+                .sorted(Comparator.comparingLong(CikCusipMaps::getId))
+                .forEach(mapping -> {
+                    int offset = offsetsByCik.get(mapping.getCik());
+                    if (offset != LongIntHashMap.MISSING) {
+                        putIfPresent(cusip6s, mapping.getCusip6(), offset);
+                        putIfPresent(cusip8s, mapping.getCusip8(), offset);
+                    }
+                });
+
+        this.offsetsByTicker = Map.copyOf(tickers);
+        this.offsetsByCusip6 = Map.copyOf(cusip6s);
+        this.offsetsByCusip8 = Map.copyOf(cusip8s);
+        this.builtAt = System.currentTimeMillis();
+    }
+
+    private static void putIfPresent(Map<String, Integer> index, String key, int offset) {
+        if (key != null && !key.isBlank()) {
+            index.putIfAbsent(key, offset);
+        }
+    }
+
+    static String normalizeTicker(String ticker) {
+        return ticker == null ? null : ticker.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public Optional<Stock> findByCik(long cik) {
+        return at(offsetsByCik.get(cik));
+    }
+
+    /**
+     * @return every stock of the CIK, one per ticker, in ticker order
+     */
+    public List<Stock> findAllByCik(long cik) {
+        int first = offsetsByCik.get(cik);
+        if (first == LongIntHashMap.MISSING) {
+            return List.of();
+        }
+        int end = first + 1;
+        while (end < stocks.length && stocks[end].getCik() == cik) {
+            end++;
+        }
+        return Arrays.asList(stocks).subList(first, end);
+    }
+
+    public Optional<Stock> findByTicker(String ticker) {
+        return at(offsetsByTicker, normalizeTicker(ticker));
+    }
+
+    public Optional<Stock> findByCusip6(String cusip6) {
+        return at(offsetsByCusip6, cusip6);
+    }
+
+    public Optional<Stock> findByCusip8(String cusip8) {
+        return at(offsetsByCusip8, cusip8);
+    }
+
+    public int size() {
+        return stocks.length;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    private Optional<Stock> at(int offset) {
+        return offset == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(stocks[offset]);
+    }
+
+    private Optional<Stock> at(Map<String, Integer> index, String key) {
+        Integer offset = key == null ? null : index.get(key);
+        return offset == null ? Optional.empty() : Optional.of(stocks[offset]);
+    }
+}
@@ -0,0 +1,214 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.CikCusipMaps;
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
+import com.jds.edgar.cik.download.model.StockResolution;
+import com.jds.edgar.cik.download.model.StockResolveRequest;
+import com.jds.edgar.cik.download.repository.CikCusipMapsRepository;
+import com.jds.edgar.cik.download.repository.StockRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Answers stock lookups from an immutable {@link StockIndex} of the {@code stocks} and {@code cik_cusip_maps} tables.
+ * <p>
+ * The index is built when the application starts and rebuilt in the background after every
+ * {@link StockDataChangedEvent}, then published with a single reference swap, so lookups never lock and never see
+ * a half built index. Rebuild requests arriving during a rebuild are collapsed into one.
+ * Until the first index is built, lookups go to the database, by CIK and by ticker through the {@link StockLookupCache}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockIndexServiceImpl {
+
+    public static final int MAX_RESOLVE_IDENTIFIERS = 100_000;
+    private static final int IN_QUERY_CHUNK_SIZE = 1000;
+
+    private final StockRepository stockRepository;
+    private final CikCusipMapsRepository cikCusipMapsRepository;
+    private final StockLookupCache stockLookupCache;
+
+    private final AtomicReference<StockIndex> index = new AtomicReference<>();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild("startup");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataChanged(StockDataChangedEvent event) {
+        requestRebuild(event.getSource());
+    }
+
+    public void requestRebuild(String source) {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            log.debug("Stock index rebuild requested by {}", source);
+            rebuildExecutor.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.error("Failed to rebuild the stock index, keeping the previous one", e);
+                }
+            });
+        }
+    }
+
+    public StockIndex rebuild() {
+        long startTime = System.currentTimeMillis();
+        List<Stock> stocks = stockRepository.findAll(Sort.by("cik", "ticker"));
+        List<CikCusipMaps> mappings = cikCusipMapsRepository.findAllOfStocks();
+        StockIndex rebuilt = new StockIndex(stocks, mappings);
+        index.set(rebuilt);
+        log.info("Stock index rebuilt with {} stocks and {} CUSIP mappings in {} ms", rebuilt.size(), mappings.size(),
+                System.currentTimeMillis() - startTime);
+        return rebuilt;
+    }
+
+    public Optional<Stock> findByCik(Long cik) {
+        StockIndex current = index.get();
+        return current != null ? current.findByCik(cik) : stockLookupCache.findByCik(cik);
+    }
+
+    public Optional<Stock> findByTicker(String ticker) {
+        StockIndex current = index.get();
+        return current != null ? current.findByTicker(ticker) : stockLookupCache.findByTicker(ticker);
+    }
+
+    /**
+     * @param cusip a CUSIP6, CUSIP8 or full nine character CUSIP
+     */
+    public Optional<Stock> findByCusip(String cusip) {
+        StockIndex current = index.get();
+        if (cusip.length() == 6) {
+            return current != null ? current.findByCusip6(cusip) : stockRepository.findFirstByCusip6(cusip);
+        }
+        if (cusip.length() == 8 || cusip.length() == 9) {
+            String cusip8 = cusip.substring(0, 8);
+            return current != null ? current.findByCusip8(cusip8) : stockRepository.findFirstByCusip8(cusip8);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Resolves every identifier of the request, emitting the resolutions in request order as they are found.
+     * The index is probed once per identifier; without an index one IN query per identifier type is sent instead.
+     */
+    public void resolve(StockResolveRequest request, Consumer<StockResolution> sink) {
+        if (request.size() > MAX_RESOLVE_IDENTIFIERS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_RESOLVE_IDENTIFIERS + " identifiers can be resolved at once");
+        }
+        List<Long> ciks = Optional.ofNullable(request.getCiks()).orElse(List.of());
+        List<String> tickers = Optional.ofNullable(request.getTickers()).orElse(List.of());
+        List<String> normalizedTickers = tickers.stream().map(StockIndex::normalizeTicker).collect(Collectors.toList());
+        List<String> cusips = Optional.ofNullable(request.getCusips()).orElse(List.<String>of()).stream()
+                .map(cusip -> cusip.trim().toUpperCase())
+                .collect(Collectors.toList());
+
+        StockIndex current = index.get();
+        Function<Long, List<Stock>> byCik;
+        Function<String, Optional<Stock>> byTicker;
+        Function<String, Optional<Stock>> byCusip;
+        if (current != null) {
+            byCik = current::findAllByCik;
+            byTicker = current::findByTicker;
+            byCusip = cusip -> findByCusip(current, cusip);
+        } else {
+            Map<Long, List<Stock>> stocksByCik = queryInChunks(ciks, stockRepository::findByCikIn).stream()
+                    .collect(Collectors.groupingBy(Stock::getCik));
+            Map<String, Stock> stocksByTicker = toMap(queryInChunks(normalizedTickers, stockRepository::findByTickerIn),
+                    stock -> StockIndex.normalizeTicker(stock.getTicker()));
+            Map<String, Stock> stocksByCusip6 = toMap(queryInChunks(cusipsOfLength(cusips, 6), stockRepository::findByCusip6In), Stock::getCusip6);
+            Map<String, Stock> stocksByCusip8 = toMap(queryInChunks(cusipsOfLength(cusips, 8), stockRepository::findByCusip8In), Stock::getCusip8);
+            byCik = cik -> stocksByCik.getOrDefault(cik, List.of());
+            byTicker = ticker -> Optional.ofNullable(stocksByTicker.get(StockIndex.normalizeTicker(ticker)));
+            byCusip = cusip -> Optional.ofNullable(cusip.length() == 6 ? stocksByCusip6.get(cusip)
+                    : cusip.length() >= 8 ? stocksByCusip8.get(cusip.substring(0, 8)) : null);
+        }
+
+        for (Long cik : ciks) {
+            List<Stock> stocks = byCik.apply(cik);
+            if (stocks.isEmpty()) {
+                sink.accept(new StockResolution(StockResolution.Type.CIK, String.valueOf(cik), null));
+            }
+            stocks.forEach(stock -> sink.accept(new StockResolution(StockResolution.Type.CIK, String.valueOf(cik), stock)));
+        }
+        for (String ticker : tickers) {
+            sink.accept(new StockResolution(StockResolution.Type.TICKER, ticker, byTicker.apply(ticker).orElse(null)));
+        }
+        for (String cusip : cusips) {
+            sink.accept(new StockResolution(StockResolution.Type.CUSIP, cusip, byCusip.apply(cusip).orElse(null)));
+        }
+    }
+
+    private static Optional<Stock> findByCusip(StockIndex index, String cusip) {
+        if (cusip.length() == 6) {
+            return index.findByCusip6(cusip);
+        }
+        if (cusip.length() == 8 || cusip.length() == 9) {
+            return index.findByCusip8(cusip.substring(0, 8));
+        }
+        return Optional.empty();
+    }
+
+    private static List<String> cusipsOfLength(List<String> cusips, int length) {
+        return cusips.stream()
+                .filter(cusip -> length == 6 ? cusip.length() == 6 : cusip.length() == 8 || cusip.length() == 9)
+                .map(cusip -> cusip.substring(0, length))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static <K> List<Stock> queryInChunks(List<K> keys, Function<List<K>, List<Stock>> query) {
+        List<K> distinctKeys = keys.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        List<Stock> stocks = new ArrayList<>();
+        for (int from = 0; from < distinctKeys.size(); from += IN_QUERY_CHUNK_SIZE) {
+            stocks.addAll(query.apply(distinctKeys.subList(from, Math.min(distinctKeys.size(), from + IN_QUERY_CHUNK_SIZE))));
+        }
+        return stocks;
+    }
+
+    private static Map<String, Stock> toMap(List<Stock> stocks, Function<Stock, String> key) {
+        Map<String, Stock> map = new HashMap<>();
+        stocks.stream()
+                .sorted(Comparator.comparing(Stock::getCik).thenComparing(Stock::getTicker))
+                .forEach(stock -> map.putIfAbsent(key.apply(stock), stock));
+        return map;
+    }
+
+    @PreDestroy
+    public void close() {
+        rebuildExecutor.shutdownNow();
+    }
+}
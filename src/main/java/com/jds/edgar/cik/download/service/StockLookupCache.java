@@ -0,0 +1,110 @@
+package com.jds.edgar.cik.download.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.LookupCacheStats;
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.repository.StockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache in front of the database lookups by CIK and by ticker, bounded in size and expiring entries
+ * after {@code edgar.stock-cache-ttl}. Lookups that find nothing are cached too.
+ * <p>
+ * It only serves the lookups made before the first {@link StockIndex} is built, once built the index answers every
+ * lookup and this cache is no longer consulted. Its statistics then stop moving.
+ * <p>
+ * Services that write stocks must call {@link #invalidate(Long, String...)} for every CIK and ticker they change,
+ * including the old ticker when it is renamed. Cached stocks are shared between callers and must not be modified.
+ */
+@Slf4j
+@Component
+public class StockLookupCache {
+
+    private final StockRepository stockRepository;
+    private final Cache<Long, Optional<Stock>> byCik;
+    private final Cache<String, Optional<Stock>> byTicker;
+
+    public StockLookupCache(EdgarConfig edgarConfig, StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+        this.byCik = newCache(edgarConfig);
+        this.byTicker = newCache(edgarConfig);
+        log.info("Stock lookups cached for {} ms, up to {} entries per key", edgarConfig.getStockCacheTtl(), edgarConfig.getStockCacheSize());
+    }
+
+    private static <K> Cache<K, Optional<Stock>> newCache(EdgarConfig edgarConfig) {
+        return Caffeine.newBuilder()
+                .maximumSize(edgarConfig.getStockCacheSize())
+                .expireAfterWrite(Duration.ofMillis(edgarConfig.getStockCacheTtl()))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Stock> findByCik(Long cik) {
+        return byCik.get(cik, stockRepository::findByCik);
+    }
+
+    public Optional<Stock> findByTicker(String ticker) {
+        return byTicker.get(StockIndex.normalizeTicker(ticker), stockRepository::findByTicker);
+    }
+
+    /**
+     * Drops the lookups of the given CIK and tickers. Inside a transaction they are dropped again after the commit,
+     * so a lookup racing with the transaction cannot keep the data from before it.
+     */
+    public void invalidate(Long cik, String... tickers) {
+        evict(cik, tickers);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(cik, tickers);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops every lookup, for bulk updates that do not know which stocks they changed.
+     */
+    public void invalidateAll() {
+        byCik.invalidateAll();
+        byTicker.invalidateAll();
+    }
+
+    public List<LookupCacheStats> getStats() {
+        return List.of(toStats("cik", byCik), toStats("ticker", byTicker));
+    }
+
+    private void evict(Long cik, String... tickers) {
+        if (cik != null) {
+            byCik.invalidate(cik);
+        }
+        for (String ticker : tickers) {
+            if (ticker != null) {
+                byTicker.invalidate(StockIndex.normalizeTicker(ticker));
+            }
+        }
+    }
+
+    private static LookupCacheStats toStats(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return LookupCacheStats.builder()
+                .name(name)
+                .size(cache.estimatedSize())
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .evictions(stats.evictionCount())
+                .hitRate(stats.hitRate())
+                .build();
+    }
+}
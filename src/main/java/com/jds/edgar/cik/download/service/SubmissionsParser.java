@@ -0,0 +1,74 @@
+package com.jds.edgar.cik.download.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token level parser of the per-CIK JSON files of the SEC {@code submissions.zip} archive. Only the company fields
+ * are read, parsing stops as soon as they are all found so the long filing history is usually never reached.
+ */
+@Component
+@RequiredArgsConstructor
+public class SubmissionsParser {
+
+    /**
+     * Company fields of a submissions file, {@code exchanges} holds the exchange of the ticker at the same position.
+     */
+    public record Submission(long cik, String sic, String sicDescription, List<String> tickers, List<String> exchanges) {
+    }
+
+    private static final int FIELDS = 5;
+
+    private final ObjectMapper objectMapper;
+
+    public Submission parse(InputStream inputStream) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a submissions object at " + parser.currentLocation());
+            }
+            long cik = 0;
+            String sic = null;
+            String sicDescription = null;
+            List<String> tickers = List.of();
+            List<String> exchanges = List.of();
+            int found = 0;
+            while (found < FIELDS && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "cik" -> cik = parser.getValueAsLong();
+                    case "sic" -> sic = parser.getValueAsString();
+                    case "sicDescription" -> sicDescription = parser.getValueAsString();
+                    case "tickers" -> tickers = readStrings(parser);
+                    case "exchanges" -> exchanges = readStrings(parser);
+                    default -> {
+                        parser.skipChildren();
+                        continue;
+                    }
+                }
+                found++;
+            }
+            return new Submission(cik, sic, sicDescription, tickers, exchanges);
+        }
+    }
+
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return List.of();
+        }
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getValueAsString());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,174 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.FilingKey;
+import com.jds.edgar.cik.download.util.LongHashSet;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * Persistent set of the filings already in the {@link FilingStore}, so a download run can skip them without
+ * touching the filesystem. Each filing is kept as a 64 bit hash of its form type, CIK, date and accession.
+ * <p>
+ * The file at {@code edgar.filings-manifest} is a sorted snapshot of hashes followed by the hashes appended as
+ * downloads complete. It is loaded lazily on first use, and rebuilt from the filing store by {@link #reconcile()}
+ * when it is missing.
+ */
+@Slf4j
+@Component
+public class FilingManifest {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final FilingStore filingStore;
+
+    private LongHashSet keys;
+    private FileChannel journal;
+
+    public FilingManifest(EdgarConfig edgarConfig, FilingStore filingStore) {
+        this.path = Paths.get(edgarConfig.getFilingsManifest());
+        this.filingStore = filingStore;
+    }
+
+    public synchronized boolean contains(FilingKey key) {
+        ensureLoaded();
+        return keys.contains(hash(key));
+    }
+
+    public synchronized void add(FilingKey key) {
+        ensureLoaded();
+        long hash = hash(key);
+        if (keys.add(hash)) {
+            try {
+                journal.write(ByteBuffer.allocate(Long.BYTES).putLong(0, hash));
+            } catch (IOException e) {
+                // The filing is still found through the store on the next run, so a lost entry only costs a lookup
+                log.warn("Could not append to the filings manifest {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the manifest from the filings actually present in the store.
+     *
+     * @return the number of filings in the manifest
+     */
+    public synchronized int reconcile() throws IOException {
+        log.info("Start rebuilding the filings manifest from the filing store");
+        LongHashSet rebuilt = new LongHashSet();
+        try (Stream<FilingKey> storedKeys = filingStore.keys()) {
+            storedKeys.forEach(key -> rebuilt.add(hash(key)));
+        }
+
+        closeJournal();
+        Path snapshot = path.resolveSibling(path.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            for (long hash : rebuilt.toSortedArray()) {
+                if (!buffer.hasRemaining()) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(hash);
+            }
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(snapshot, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        keys = rebuilt;
+        journal = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.info("Finished rebuilding the filings manifest with {} filings", keys.size());
+        return keys.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        closeJournal();
+    }
+
+    static long hash(FilingKey key) {
+        // FNV-1a over the fields that identify a filing in every store layout
+        String id = key.getFormType() + "|" + key.getCik() + "|" + key.getDateFiled() + "|" + key.shortAccession();
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void ensureLoaded() {
+        if (keys != null) {
+            return;
+        }
+        try {
+            if (Files.exists(path)) {
+                load();
+            } else {
+                log.info("No filings manifest found at {}", path);
+                reconcile();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the filings manifest " + path, e);
+        }
+    }
+
+    private void load() throws IOException {
+        journal = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = journal.size();
+        // A crash can leave part of a hash at the end of the file
+        long usable = size - size % Long.BYTES;
+        if (usable != size) {
+            journal.truncate(usable);
+        }
+
+        LongHashSet loaded = new LongHashSet((int) Math.min(Integer.MAX_VALUE / 2, usable / Long.BYTES));
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long position = 0;
+        while (position < usable) {
+            buffer.clear();
+            int read = journal.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            while (buffer.remaining() >= Long.BYTES) {
+                loaded.add(buffer.getLong());
+            }
+            position -= buffer.remaining();
+        }
+        journal.position(usable);
+        keys = loaded;
+        log.info("Loaded the filings manifest with {} filings", keys.size());
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
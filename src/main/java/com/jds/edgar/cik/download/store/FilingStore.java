@@ -0,0 +1,32 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.model.FilingKey;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.stream.Stream;
+
+/**
+ * Storage backend for downloaded filings, selected with {@code edgar.filings-store}.
+ */
+public interface FilingStore {
+
+    boolean exists(FilingKey key);
+
+    /**
+     * Stores the uncompressed filing read from {@code content}. A filing only becomes visible once it is completely written.
+     */
+    void write(FilingKey key, InputStream content) throws IOException;
+
+    /**
+     * Opens the uncompressed content of a stored filing.
+     *
+     * @throws java.nio.file.NoSuchFileException if the filing is not stored
+     */
+    InputStream open(FilingKey key) throws IOException;
+
+    /**
+     * All stored filings, in the order that is cheapest to read them back.
+     */
+    Stream<FilingKey> keys() throws IOException;
+}
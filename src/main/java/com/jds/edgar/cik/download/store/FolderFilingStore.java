@@ -0,0 +1,108 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.FilingKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * One uncompressed {@code <formType>/<yyyy_MM>/<cik>_<date>_<accession>.txt} file per filing under {@code edgar.filings-folder}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "edgar.filings-store", havingValue = "folder", matchIfMissing = true)
+public class FolderFilingStore implements FilingStore {
+
+    private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+    private final Path root;
+
+    public FolderFilingStore(EdgarConfig edgarConfig) {
+        this.root = Paths.get(edgarConfig.getFilingsFolder());
+    }
+
+    public Path pathOf(FilingKey key) {
+        String[] date = key.getDateFiled().split("-");
+        return root.resolve(key.getFormType())
+                .resolve(date[0].trim() + "_" + date[1].trim())
+                .resolve(key.getCik() + "_" + key.getDateFiled() + "_" + key.shortAccession() + ".txt");
+    }
+
+    @Override
+    public boolean exists(FilingKey key) {
+        return Files.exists(pathOf(key));
+    }
+
+    /**
+     * Copies the stream into a temporary file next to the target, syncs it to disk and renames it into place,
+     * so a file under its final name is always complete. The bytes are written as received, without re-encoding.
+     */
+    @Override
+    public void write(FilingKey key, InputStream content) throws IOException {
+        Path target = pathOf(key);
+        Files.createDirectories(target.getParent());
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            try (ReadableByteChannel source = Channels.newChannel(content);
+                 FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = channel.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                    position += transferred;
+                }
+                channel.force(true);
+            }
+            Files.move(partFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(FilingKey key) throws IOException {
+        return Files.newInputStream(pathOf(key));
+    }
+
+    @Override
+    public Stream<FilingKey> keys() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        return Files.walk(root)
+                .filter(path -> path.getFileName().toString().endsWith(".txt"))
+                .map(this::keyOf)
+                .filter(Objects::nonNull);
+    }
+
+    private FilingKey keyOf(Path path) {
+        Path relative = root.relativize(path);
+        String[] parts = path.getFileName().toString().replace(".txt", "").split("_");
+        if (relative.getNameCount() < 3 || parts.length != 3) {
+            log.warn("Skipping unexpected file in filings folder: {}", path);
+            return null;
+        }
+        // Form types such as "SC 13D/A" span several folders
+        String formType = relative.subpath(0, relative.getNameCount() - 2).toString().replace('\\', '/');
+        try {
+            return new FilingKey(formType, Long.parseLong(parts[0]), parts[1], parts[2]);
+        } catch (NumberFormatException e) {
+            log.warn("Skipping unexpected file in filings folder: {}", path);
+            return null;
+        }
+    }
+}
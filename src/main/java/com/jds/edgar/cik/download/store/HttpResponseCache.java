@@ -0,0 +1,423 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.CachedResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of the responses to SEC requests, shared by the {@code RestTemplate}, Jsoup and {@code HttpURLConnection}
+ * clients so restarts, retries and reprocessing do not download the same files again.
+ * <p>
+ * Bodies are content addressed, stored once under {@code blobs/} by their SHA-256 whatever URLs returned them, and
+ * every URL has a small entry file under {@code entries/} pointing at its body. How long an entry is served depends
+ * on the kind of URL: the master.idx of a closed quarter never changes and never expires, while the current quarter,
+ * the ticker files and the company pages expire after their own TTL. Filing archives are not cached, the filing
+ * store already keeps every downloaded filing.
+ * <p>
+ * Beyond {@code edgar.http-cache-max-size} bytes the least recently used entries are evicted. In offline mode every
+ * cached entry is served whatever its age, and anything else fails instead of reaching the SEC.
+ * <p>
+ * A returned body is opened while the cache is locked and pins its blob until it is closed, so an eviction or a
+ * replacement of the entry in between never deletes a body still being read. Callers must close the response.
+ */
+@Slf4j
+@Component
+public class HttpResponseCache {
+
+    enum UrlClass {CLOSED_QUARTER_INDEX, CURRENT_QUARTER_INDEX, TICKERS, COMPANY_PAGE, OTHER}
+
+    /**
+     * Downloads a response missing from the cache.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Writes the body of the response to {@code body}.
+         *
+         * @return the response headers to keep with it
+         */
+        Map<String, String> load(OutputStream body) throws IOException;
+    }
+
+    private record Entry(String url, String hash, long size, long fetchedAt, Map<String, String> headers) {
+    }
+
+    private static final Pattern FULL_INDEX = Pattern.compile("/full-index/(\\d{4})/QTR([1-4])/");
+    private static final String HEADER_PREFIX = "header.";
+
+    private final EdgarConfig edgarConfig;
+    private final boolean enabled;
+    private final boolean offline;
+    private final Path blobs;
+    private final Path entries;
+    private final Path partFolder;
+
+    // In access order, so the first entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entriesByUrl = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> references = new HashMap<>();
+    // Blobs of the bodies still open, deleted on their last close when no entry points at them anymore
+    private final Map<String, Integer> pins = new HashMap<>();
+    private long totalSize;
+
+    public HttpResponseCache(EdgarConfig edgarConfig) throws IOException {
+        this.edgarConfig = edgarConfig;
+        this.enabled = Boolean.TRUE.equals(edgarConfig.getHttpCacheEnabled());
+        this.offline = enabled && Boolean.TRUE.equals(edgarConfig.getHttpCacheOffline());
+        Path root = Path.of(edgarConfig.getHttpCacheFolder());
+        this.blobs = root.resolve("blobs");
+        this.entries = root.resolve("entries");
+        this.partFolder = root.resolve("parts");
+        if (enabled) {
+            load();
+            log.info("HTTP response cache at {} holds {} responses in {} bytes{}", root, entriesByUrl.size(), totalSize,
+                    offline ? ", offline mode" : "");
+        }
+    }
+
+    public boolean isCacheable(String url) {
+        return enabled && !url.contains("/Archives/edgar/data/");
+    }
+
+    /**
+     * @return the cached response of the URL with its body open, unless it expired; in offline mode whatever its age
+     */
+    public synchronized Optional<CachedResponse> lookup(String url) {
+        if (!isCacheable(url)) {
+            return Optional.empty();
+        }
+        Entry entry = entriesByUrl.get(url);
+        if (entry == null || !offline && System.currentTimeMillis() - entry.fetchedAt() >= ttlOf(url)) {
+            return Optional.empty();
+        }
+        Path blob = blobOf(entry.hash());
+        if (!Files.isRegularFile(blob)) {
+            remove(entry);
+            return Optional.empty();
+        }
+        try {
+            Files.setLastModifiedTime(entryFileOf(url), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("Could not record the use of the cached {}", url, e);
+        }
+        try {
+            return Optional.of(open(entry));
+        } catch (IOException e) {
+            log.warn("Could not read the cached body of {}", url, e);
+            remove(entry);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Fails in offline mode, for requests about to reach the SEC.
+     */
+    public void checkOnline(String url) throws IOException {
+        if (offline) {
+            throw new IOException("Offline mode, " + url + " is not in the HTTP response cache");
+        }
+    }
+
+    /**
+     * @return the cached response of the URL with its body open, downloaded with the loader first when missing or expired
+     */
+    public CachedResponse get(String url, Loader loader) throws IOException {
+        Optional<CachedResponse> cached = lookup(url);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        checkOnline(url);
+        return write(url, loader);
+    }
+
+    /**
+     * Replaces the cached response of the URL with the body read from the stream.
+     */
+    public void put(String url, InputStream body, Map<String, String> headers) throws IOException {
+        write(url, outputStream -> {
+            body.transferTo(outputStream);
+            return headers;
+        }).close();
+    }
+
+    public synchronized long size() {
+        return totalSize;
+    }
+
+    private CachedResponse write(String url, Loader loader) throws IOException {
+        Files.createDirectories(partFolder);
+        Path part = Files.createTempFile(partFolder, "response", ".part");
+        try {
+            MessageDigest digest = sha256();
+            Map<String, String> headers;
+            try (OutputStream outputStream = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(part), 64 * 1024), digest)) {
+                headers = loader.load(outputStream);
+            }
+            return commit(url, part, HexFormat.of().formatHex(digest.digest()), headers);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private synchronized CachedResponse commit(String url, Path part, String hash, Map<String, String> headers) throws IOException {
+        long size = Files.size(part);
+        Path blob = blobOf(hash);
+        if (!Files.isRegularFile(blob)) {
+            Files.createDirectories(blob.getParent());
+            Files.move(part, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Map<String, String> keptHeaders = headers == null ? Map.of() : headers.entrySet().stream()
+                .filter(header -> header.getKey() != null && header.getValue() != null)
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+        Entry entry = new Entry(url, hash, size, System.currentTimeMillis(), keptHeaders);
+        writeEntryFile(entry);
+
+        reference(entry);
+        Entry previous = entriesByUrl.put(url, entry);
+        if (previous != null) {
+            release(previous);
+        }
+        evict();
+        return open(entry);
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entriesByUrl.values().iterator();
+        // The entry just written is the most recently used one and always stays
+        while (totalSize > edgarConfig.getHttpCacheMaxSize() && entriesByUrl.size() > 1) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            deleteEntryFile(eldest.url());
+            release(eldest);
+            log.debug("Evicted {} from the HTTP response cache", eldest.url());
+        }
+    }
+
+    private void remove(Entry entry) {
+        entriesByUrl.remove(entry.url());
+        deleteEntryFile(entry.url());
+        release(entry);
+    }
+
+    private void reference(Entry entry) {
+        if (references.merge(entry.hash(), 1, Integer::sum) == 1) {
+            totalSize += entry.size();
+        }
+    }
+
+    private void release(Entry entry) {
+        if (references.merge(entry.hash(), -1, Integer::sum) == 0) {
+            references.remove(entry.hash());
+            totalSize -= entry.size();
+            if (!pins.containsKey(entry.hash())) {
+                deleteBlob(entry.hash());
+            }
+        }
+    }
+
+    private synchronized void unpin(String hash) {
+        if (pins.merge(hash, -1, Integer::sum) == 0) {
+            pins.remove(hash);
+            if (!references.containsKey(hash)) {
+                deleteBlob(hash);
+            }
+        }
+    }
+
+    private void deleteBlob(String hash) {
+        try {
+            Files.deleteIfExists(blobOf(hash));
+        } catch (IOException e) {
+            log.warn("Could not delete the cached body {}", hash, e);
+        }
+    }
+
+    long ttlOf(String url) {
+        return switch (classify(url, LocalDate.now())) {
+            case CLOSED_QUARTER_INDEX -> Long.MAX_VALUE;
+            case CURRENT_QUARTER_INDEX -> edgarConfig.getHttpCacheCurrentIndexTtl();
+            case TICKERS -> edgarConfig.getHttpCacheTickersTtl();
+            case COMPANY_PAGE -> edgarConfig.getHttpCacheCompanyPageTtl();
+            case OTHER -> edgarConfig.getHttpCacheDefaultTtl();
+        };
+    }
+
+    static UrlClass classify(String url, LocalDate today) {
+        Matcher matcher = FULL_INDEX.matcher(url);
+        if (matcher.find()) {
+            int year = Integer.parseInt(matcher.group(1));
+            int quarter = Integer.parseInt(matcher.group(2));
+            int currentQuarter = (today.getMonthValue() - 1) / 3 + 1;
+            boolean closed = year < today.getYear() || year == today.getYear() && quarter < currentQuarter;
+            return closed ? UrlClass.CLOSED_QUARTER_INDEX : UrlClass.CURRENT_QUARTER_INDEX;
+        }
+        if (url.contains("/company_tickers")) {
+            return UrlClass.TICKERS;
+        }
+        if (url.contains("/cgi-bin/browse-edgar")) {
+            return UrlClass.COMPANY_PAGE;
+        }
+        return UrlClass.OTHER;
+    }
+
+    private CachedResponse open(Entry entry) throws IOException {
+        InputStream body = Files.newInputStream(blobOf(entry.hash()));
+        pins.merge(entry.hash(), 1, Integer::sum);
+        return CachedResponse.builder()
+                .url(entry.url())
+                .body(new PinnedBody(body, entry.hash()))
+                .size(entry.size())
+                .fetchedAt(entry.fetchedAt())
+                .headers(entry.headers())
+                .build();
+    }
+
+    private class PinnedBody extends FilterInputStream {
+
+        private final String hash;
+        private boolean closed;
+
+        PinnedBody(InputStream body, String hash) {
+            super(body);
+            this.hash = hash;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                unpin(hash);
+            }
+        }
+    }
+
+    private Path blobOf(String hash) {
+        return blobs.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path entryFileOf(String url) {
+        return entries.resolve(HexFormat.of().formatHex(sha256().digest(url.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private void writeEntryFile(Entry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("url", entry.url());
+        properties.setProperty("hash", entry.hash());
+        properties.setProperty("size", String.valueOf(entry.size()));
+        properties.setProperty("fetchedAt", String.valueOf(entry.fetchedAt()));
+        entry.headers().forEach((name, value) -> properties.setProperty(HEADER_PREFIX + name, value));
+
+        Files.createDirectories(entries);
+        Path target = entryFileOf(entry.url());
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        try (Writer writer = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteEntryFile(String url) {
+        try {
+            Files.deleteIfExists(entryFileOf(url));
+        } catch (IOException e) {
+            log.warn("Could not delete the cache entry of {}", url, e);
+        }
+    }
+
+    /**
+     * Reads the entry files back in the order they were last used, then deletes the bodies no entry points at,
+     * left behind by a crash between writing a body and its entry.
+     */
+    private void load() throws IOException {
+        Files.createDirectories(entries);
+        Files.createDirectories(blobs);
+        List<Path> entryFiles;
+        try (Stream<Path> files = Files.list(entries)) {
+            entryFiles = files.filter(file -> !file.getFileName().toString().endsWith(".part"))
+                    .sorted(Comparator.comparing(HttpResponseCache::lastModified))
+                    .toList();
+        }
+        for (Path entryFile : entryFiles) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(entryFile, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+                Map<String, String> headers = new HashMap<>();
+                for (String name : properties.stringPropertyNames()) {
+                    if (name.startsWith(HEADER_PREFIX)) {
+                        headers.put(name.substring(HEADER_PREFIX.length()), properties.getProperty(name));
+                    }
+                }
+                Entry entry = new Entry(properties.getProperty("url"), properties.getProperty("hash"),
+                        Long.parseLong(properties.getProperty("size")), Long.parseLong(properties.getProperty("fetchedAt")),
+                        Map.copyOf(headers));
+                if (Files.isRegularFile(blobOf(entry.hash()))) {
+                    entriesByUrl.put(entry.url(), entry);
+                    reference(entry);
+                } else {
+                    Files.deleteIfExists(entryFile);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Ignoring the unreadable cache entry {}", entryFile, e);
+            }
+        }
+        try (Stream<Path> files = Files.walk(blobs)) {
+            for (Path blob : files.filter(Files::isRegularFile).toList()) {
+                if (!references.containsKey(blob.getFileName().toString())) {
+                    Files.deleteIfExists(blob);
+                }
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.model.CachedResponse;
+import com.jds.edgar.cik.download.service.SecRateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the GET requests of a {@code RestTemplate} from the {@link HttpResponseCache}. Responses are cached as
+ * received, their {@code Content-Encoding} included, so callers read a cached response exactly like a fresh one.
+ * Error statuses are not cached, they are thrown as the {@code HttpStatusCodeException} the default error handler
+ * would have thrown. Conditional requests and requests sent with {@code Cache-Control: no-cache} go to the server,
+ * their callers handle the 304 and cache the body themselves. In offline mode the requests that cannot be cached fail too.
+ * <p>
+ * Only the requests that reach the SEC take a token from the {@link SecRateLimiter}, cache hits are served right away.
+ */
+@RequiredArgsConstructor
+public class HttpResponseCacheInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final List<String> CACHED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED);
+
+    private final HttpResponseCache httpResponseCache;
+    private final SecRateLimiter secRateLimiter;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String url = request.getURI().toString();
+        if (request.getMethod() != HttpMethod.GET || !httpResponseCache.isCacheable(url) || bypassesCache(request.getHeaders())) {
+            httpResponseCache.checkOnline(url);
+            secRateLimiter.acquire();
+            return execution.execute(request, body);
+        }
+        CachedResponse cachedResponse = httpResponseCache.get(url, outputStream -> {
+            secRateLimiter.acquire();
+            try (ClientHttpResponse response = execution.execute(request, body)) {
+                HttpStatusCode statusCode = response.getStatusCode();
+                if (!statusCode.is2xxSuccessful()) {
+                    byte[] errorBody = response.getBody().readAllBytes();
+                    if (statusCode.is4xxClientError()) {
+                        throw HttpClientErrorException.create(statusCode, response.getStatusText(), response.getHeaders(), errorBody, null);
+                    }
+                    if (statusCode.is5xxServerError()) {
+                        throw HttpServerErrorException.create(statusCode, response.getStatusText(), response.getHeaders(), errorBody, null);
+                    }
+                    throw new IOException("Unexpected status " + statusCode + " for " + url);
+                }
+                response.getBody().transferTo(outputStream);
+                Map<String, String> headers = new HashMap<>();
+                for (String name : CACHED_HEADERS) {
+                    String value = response.getHeaders().getFirst(name);
+                    if (value != null) {
+                        headers.put(name, value);
+                    }
+                }
+                return headers;
+            }
+        });
+        return new CachedClientHttpResponse(cachedResponse);
+    }
+
+    private static boolean bypassesCache(HttpHeaders headers) {
+        return headers.containsKey(HttpHeaders.IF_NONE_MATCH) || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+                || "no-cache".equalsIgnoreCase(headers.getCacheControl());
+    }
+
+    private static class CachedClientHttpResponse implements ClientHttpResponse {
+
+        private final CachedResponse cachedResponse;
+
+        CachedClientHttpResponse(CachedResponse cachedResponse) {
+            this.cachedResponse = cachedResponse;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return HttpStatus.OK;
+        }
+
+        @Override
+        @Deprecated
+        public int getRawStatusCode() {
+            return HttpStatus.OK.value();
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            cachedResponse.getHeaders().forEach(headers::set);
+            headers.setContentLength(cachedResponse.getSize());
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return cachedResponse.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                cachedResponse.close();
+            } catch (IOException ignored) {
+                // Nothing left to read from it
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.FilingKey;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends every filing as its own gzip member to large segment files under {@code edgar.filings-segments-folder}.
+ * Each {@code segment-NNNNNN.dat} has a {@code segment-NNNNNN.idx} with one
+ * {@code formType|cik|dateFiled|accession|offset|length} line per filing, loaded into memory at startup
+ * for random access by the whole key, CIK, date and accession included. The accession alone is not enough: the same
+ * filing is listed under every CIK it concerns, and filings migrated from the folder layout may only carry the last
+ * part of their accession number. A segment is rolled over once it reaches {@code edgar.filings-segment-size} bytes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "edgar.filings-store", havingValue = "segment")
+public class SegmentFilingStore implements FilingStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final long maxSegmentSize;
+    private final Map<FilingKey, Entry> index = new ConcurrentHashMap<>();
+    private final Object appendLock = new Object();
+
+    private int activeSegment;
+    private FileChannel activeData;
+    private FileChannel activeIndex;
+
+    private record Entry(FilingKey key, int segment, long offset, long length) {
+    }
+
+    public SegmentFilingStore(EdgarConfig edgarConfig) {
+        this.root = Paths.get(edgarConfig.getFilingsSegmentsFolder());
+        this.maxSegmentSize = edgarConfig.getFilingsSegmentSize();
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(root);
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(root)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".idx"))
+                    .map(name -> Integer.parseInt(name.substring("segment-".length(), name.length() - ".idx".length())))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        for (int segment : segments) {
+            loadSegment(segment);
+        }
+        openSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1));
+        log.info("Filing segment store opened at {} with {} filings in {} segments", root, index.size(), Math.max(1, segments.size()));
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            activeData.close();
+            activeIndex.close();
+        }
+    }
+
+    @Override
+    public boolean exists(FilingKey key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Compresses the filing into a temporary file first, so only the final append to the active segment is serialized.
+     * The segment data is synced before its index line is written, an entry is therefore never visible before its bytes.
+     */
+    @Override
+    public void write(FilingKey key, InputStream content) throws IOException {
+        Path compressed = Files.createTempFile(root, "filing-", ".gz.part");
+        try {
+            try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(compressed), BUFFER_SIZE)) {
+                content.transferTo(outputStream);
+            }
+            long length = Files.size(compressed);
+
+            synchronized (appendLock) {
+                if (index.containsKey(key)) {
+                    return;
+                }
+                if (activeData.size() > 0 && activeData.size() + length > maxSegmentSize) {
+                    activeData.close();
+                    activeIndex.close();
+                    openSegment(activeSegment + 1);
+                }
+                long offset = activeData.size();
+                try (FileChannel source = FileChannel.open(compressed, StandardOpenOption.READ)) {
+                    long position = 0;
+                    while (position < length) {
+                        position += source.transferTo(position, length - position, activeData);
+                    }
+                }
+                activeData.force(false);
+
+                String line = String.join("|", key.getFormType(), String.valueOf(key.getCik()), key.getDateFiled(),
+                        key.getAccession(), String.valueOf(offset), String.valueOf(length)) + "\n";
+                activeIndex.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                activeIndex.force(false);
+                index.put(key, new Entry(key, activeSegment, offset, length));
+            }
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    @Override
+    public InputStream open(FilingKey key) throws IOException {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            throw new NoSuchFileException(key.getCik() + "_" + key.getDateFiled() + "_" + key.getAccession());
+        }
+        FileChannel channel = FileChannel.open(dataPath(entry.segment()), StandardOpenOption.READ);
+        try {
+            channel.position(entry.offset());
+            return new GZIPInputStream(new BoundedInputStream(Channels.newInputStream(channel), entry.length()), BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            // The stream owns the channel only once it is returned, e.g. a corrupt gzip header fails before that
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Keys in segment and offset order, reading them back in this order scans every segment sequentially.
+     */
+    @Override
+    public Stream<FilingKey> keys() {
+        return index.values().stream()
+                .sorted(Comparator.comparingInt(Entry::segment).thenComparingLong(Entry::offset))
+                .map(Entry::key);
+    }
+
+    private void loadSegment(int segment) throws IOException {
+        Path dataPath = dataPath(segment);
+        long dataSize = Files.exists(dataPath) ? Files.size(dataPath) : 0;
+        List<String> validLines = new ArrayList<>();
+        boolean damaged = false;
+        for (String line : Files.readAllLines(indexPath(segment), StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\\|");
+            try {
+                FilingKey key = new FilingKey(fields[0], Long.parseLong(fields[1]), fields[2], fields[3]);
+                long offset = Long.parseLong(fields[4]);
+                long length = Long.parseLong(fields[5]);
+                if (offset + length > dataSize) {
+                    damaged = true;
+                    continue;
+                }
+                index.put(key, new Entry(key, segment, offset, length));
+                validLines.add(line);
+            } catch (RuntimeException e) {
+                // A line cut short by a crash while it was being appended
+                damaged = true;
+            }
+        }
+        if (damaged) {
+            log.warn("Dropped incomplete entries from {}", indexPath(segment));
+            Files.write(indexPath(segment), validLines, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void openSegment(int segment) throws IOException {
+        activeSegment = segment;
+        activeData = FileChannel.open(dataPath(segment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeIndex = FileChannel.open(indexPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Bytes past the last indexed filing belong to an append that never completed
+        long end = index.values().stream()
+                .filter(entry -> entry.segment() == segment)
+                .mapToLong(entry -> entry.offset() + entry.length())
+                .max()
+                .orElse(0);
+        activeData.truncate(end);
+        activeData.position(end);
+    }
+
+    private Path dataPath(int segment) {
+        return root.resolve(String.format("segment-%06d.dat", segment));
+    }
+
+    private Path indexPath(int segment) {
+        return root.resolve(String.format("segment-%06d.idx", segment));
+    }
+}
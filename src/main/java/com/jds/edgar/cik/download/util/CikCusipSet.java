@@ -0,0 +1,114 @@
+package com.jds.edgar.cik.download.util;
+
+/**
+ * Open-addressing set of (CIK, CUSIP8) pairs stored as two primitive longs, 16 to 32 bytes per pair instead of
+ * a few hundred for a {@code HashSet<String>} of concatenated keys.
+ * <p>
+ * The CUSIP8 is packed 6 bits per character, case-insensitively, with every character encoded as at least 1,
+ * so a packed CUSIP is never zero and zero marks empty slots. Not thread safe.
+ */
+public class CikCusipSet {
+
+    private long[] ciks;
+    private long[] cusips;
+    private int size;
+
+    public CikCusipSet() {
+        this(1024);
+    }
+
+    public CikCusipSet(int expectedSize) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1);
+        ciks = new long[capacity];
+        cusips = new long[capacity];
+    }
+
+    /**
+     * @return true if the pair was not already present
+     * @throws IllegalArgumentException if the CUSIP is not 8 characters of 0-9, A-Z, '*', '@' or '#'
+     */
+    public boolean add(long cik, CharSequence cusip8) {
+        long cusip = pack(cusip8);
+        if (cusip < 0) {
+            throw new IllegalArgumentException("Invalid CUSIP8: " + cusip8);
+        }
+        if ((size + 1) * 2 > ciks.length) {
+            rehash(ciks.length * 2);
+        }
+        int mask = ciks.length - 1;
+        for (int slot = mix(cik, cusip) & mask; ; slot = (slot + 1) & mask) {
+            if (cusips[slot] == 0) {
+                ciks[slot] = cik;
+                cusips[slot] = cusip;
+                size++;
+                return true;
+            }
+            if (cusips[slot] == cusip && ciks[slot] == cik) {
+                return false;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the CUSIP8 packed 6 bits per character, or -1 if it is not a valid CUSIP8
+     */
+    public static long pack(CharSequence cusip8) {
+        if (cusip8.length() != 8) {
+            return -1;
+        }
+        long packed = 0;
+        for (int i = 0; i < 8; i++) {
+            int code = code(cusip8.charAt(i));
+            if (code < 0) {
+                return -1;
+            }
+            packed = (packed << 6) | code;
+        }
+        return packed;
+    }
+
+    private static int code(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 11;
+        }
+        return switch (c) {
+            case '*' -> 37;
+            case '@' -> 38;
+            case '#' -> 39;
+            default -> -1;
+        };
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldCiks = ciks;
+        long[] oldCusips = cusips;
+        ciks = new long[newCapacity];
+        cusips = new long[newCapacity];
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldCusips.length; i++) {
+            if (oldCusips[i] != 0) {
+                int slot = mix(oldCiks[i], oldCusips[i]) & mask;
+                while (cusips[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                ciks[slot] = oldCiks[i];
+                cusips[slot] = oldCusips[i];
+            }
+        }
+    }
+
+    private static int mix(long cik, long cusip) {
+        long h = (cusip ^ (cik * 0xC2B2AE3D27D4EB4FL)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,109 @@
+package com.jds.edgar.cik.download.util;
+
+/**
+ * Open-addressing map from primitive long keys to int values, avoiding the boxed keys and entries of a
+ * {@code HashMap<Long, Integer>}. Not thread safe, but safe to read from many threads once no longer modified
+ * and published safely.
+ */
+public class LongIntHashMap {
+
+    public static final int MISSING = -1;
+
+    private static final long EMPTY = 0L;
+    // Zero marks empty slots, so its value is kept separately
+    private int zeroValue = MISSING;
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1);
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * @return the value of the key, or {@link #MISSING}
+     */
+    public int get(long key) {
+        if (key == EMPTY) {
+            return zeroValue;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * Associates the value with the key unless the key already has one.
+     *
+     * @return true if the key was not already present
+     */
+    public boolean putIfAbsent(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative: " + value);
+        }
+        if (key == EMPTY) {
+            boolean added = zeroValue == MISSING;
+            if (added) {
+                zeroValue = value;
+                size++;
+            }
+            return added;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                return false;
+            }
+            if (current == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[newCapacity];
+        values = new int[newCapacity];
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
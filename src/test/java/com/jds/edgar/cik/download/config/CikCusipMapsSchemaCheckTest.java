@@ -0,0 +1,76 @@
+package com.jds.edgar.cik.download.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CikCusipMapsSchemaCheckTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private CikCusipMapsSchemaCheck cikCusipMapsSchemaCheck;
+
+    @Test
+    public void testExistingIndexIsKept() {
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Boolean>>any())).thenReturn(true);
+
+        cikCusipMapsSchemaCheck.checkCikCusipIndex();
+
+        verify(jdbcTemplate, never()).update(anyString());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    public void testIndexOnBothColumnsIsFoundInMetadata() throws Exception {
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        ResultSet indexes = mock(ResultSet.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getIndexInfo(any(), any(), eq("cik_cusip_maps"), eq(true), eq(false))).thenReturn(indexes);
+        // A unique index on the CIK alone does not count, the one on (cik, cusip8) does
+        when(indexes.next()).thenReturn(true, true, true, true, false);
+        when(indexes.getString("INDEX_NAME")).thenReturn("PRIMARY", "uk_cik", CikCusipMapsSchemaCheck.INDEX_NAME, CikCusipMapsSchemaCheck.INDEX_NAME);
+        when(indexes.getString("COLUMN_NAME")).thenReturn("id", "cik", "CIK", "CUSIP8");
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Boolean>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<Boolean>>getArgument(0).doInConnection(connection));
+
+        cikCusipMapsSchemaCheck.checkCikCusipIndex();
+
+        verify(jdbcTemplate, never()).update(anyString());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    public void testDuplicatesAreRemovedBeforeCreatingIndex() {
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Boolean>>any())).thenReturn(false, true);
+        when(jdbcTemplate.update(CikCusipMapsSchemaCheck.DELETE_DUPLICATES_SQL)).thenReturn(3);
+
+        cikCusipMapsSchemaCheck.checkCikCusipIndex();
+
+        var inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).update(CikCusipMapsSchemaCheck.DELETE_DUPLICATES_SQL);
+        inOrder.verify(jdbcTemplate).execute(CikCusipMapsSchemaCheck.CREATE_INDEX_SQL);
+    }
+
+    @Test
+    public void testMissingIndexFailsStartup() {
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Boolean>>any())).thenReturn(false, false);
+
+        assertThrows(IllegalStateException.class, () -> cikCusipMapsSchemaCheck.checkCikCusipIndex());
+    }
+}
@@ -0,0 +1,52 @@
+package com.jds.edgar.cik.download.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FullIndexSchemaCheckTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private FullIndexSchemaCheck fullIndexSchemaCheck;
+
+    @Test
+    public void testExistingIndexIsKept() {
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Boolean>>any())).thenReturn(true);
+
+        fullIndexSchemaCheck.checkFilenameIndex();
+
+        verify(jdbcTemplate, never()).update(anyString());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    public void testDuplicatesAreRemovedBeforeCreatingIndex() {
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Boolean>>any())).thenReturn(false, true);
+        when(jdbcTemplate.update(FullIndexSchemaCheck.DELETE_DUPLICATES_SQL)).thenReturn(3);
+
+        fullIndexSchemaCheck.checkFilenameIndex();
+
+        var inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).update(FullIndexSchemaCheck.DELETE_DUPLICATES_SQL);
+        inOrder.verify(jdbcTemplate).execute(FullIndexSchemaCheck.CREATE_INDEX_SQL);
+    }
+
+    @Test
+    public void testMissingIndexFailsStartup() {
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Boolean>>any())).thenReturn(false, false);
+
+        assertThrows(IllegalStateException.class, () -> fullIndexSchemaCheck.checkFilenameIndex());
+    }
+}
@@ -10,8 +10,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.context.TestPropertySource;
 
 import java.io.IOException;
@@ -33,6 +35,15 @@ public class CikDownloadServiceTest {
     @Mock
     private StockRepository cikRepository;
 
+    @Mock
+    private StockLookupCache stockLookupCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private CompanyTickersParser companyTickersParser = new CompanyTickersParser(new ObjectMapper());
+
     @InjectMocks
     private CikDownloadServiceImpl cikDownloadService;
 
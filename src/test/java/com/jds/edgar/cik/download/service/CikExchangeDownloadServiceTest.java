@@ -2,29 +2,42 @@ package com.jds.edgar.cik.download.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.ConditionalDownload;
+import com.jds.edgar.cik.download.model.ProcessExecution;
 import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
+import com.jds.edgar.cik.download.model.StockId;
+import com.jds.edgar.cik.download.repository.ProcessExecutionRepository;
 import com.jds.edgar.cik.download.repository.StockRepository;
+import com.jds.edgar.cik.download.store.HttpResponseCache;
+import com.jds.edgar.cik.download.store.HttpResponseCacheInterceptor;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
-import org.springframework.test.context.TestPropertySource;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.LinkedHashMap;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
-@DataJpaTest
-@TestPropertySource(locations = "classpath:test.properties")
 public class CikExchangeDownloadServiceTest {
     @Mock
     private EdgarConfig edgarConfig;
@@ -32,32 +45,134 @@ public class CikExchangeDownloadServiceTest {
     @Mock
     private StockRepository cikRepository;
 
+    @Mock
+    private StockLookupCache stockLookupCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private CikExchangeDownloadServiceImpl cikExchangeDownloadService;
 
-    private LinkedHashMap<String, Object> testData;
+    @Spy
+    private CompanyTickersParser companyTickersParser = new CompanyTickersParser(new ObjectMapper());
+
+    private final byte[] testData = """
+            {"fields":["cik","name","ticker","exchange"],"data":[
+            [320193,"Apple Inc.","AAPL","Nasdaq"],
+            [789019,"MICROSOFT CORP","MSFT","Nasdaq"],
+            [1067983,"BERKSHIRE HATHAWAY INC","BRK-B","NYSE"]]}
+            """.getBytes(StandardCharsets.UTF_8);
 
     @BeforeEach
-    public void setUp() throws IOException {
-        testData = new LinkedHashMap<>();
-        // Load the test data from the manually downloaded file in the resources folder
-        ObjectMapper objectMapper = new ObjectMapper();
-        InputStream testDataInputStream = getClass().getResourceAsStream("/company_tickers_exchange_test.json");
-        ExchangeTestData exchangeTestData = objectMapper.readValue(testDataInputStream, ExchangeTestData.class);
-        List<List<Object>> data = exchangeTestData.getData();
-        for (List<Object> entry : data) {
-            testData.put(String.valueOf(entry.get(0)), entry);
-        }
+    public void setUp() {
+        lenient().when(edgarConfig.getExchangeSyncMaxDeleteRatio()).thenReturn(0.5);
     }
 
+    @SuppressWarnings("unchecked")
     @Test
-    public void testUpdateCikExchangeData() {
-        when(edgarConfig.getCompanyTickersExchangeUrl()).thenReturn("classpath:company_tickers_exchange_test.json");
-        when(cikRepository.findById(any())).thenReturn(Optional.of(mock(Stock.class)));
+    public void testUpdateCikExchangeData() throws IOException {
+        when(cikRepository.findAll()).thenReturn(List.of(
+                Stock.builder().cik(320193L).ticker("AAPL").name("Apple Inc.").exchange("Nasdaq").build(),
+                Stock.builder().cik(789019L).ticker("MSFT").name("Microsoft").exchange("Nasdaq").build(),
+                Stock.builder().cik(1318605L).ticker("TSLA").name("Tesla, Inc.").exchange("Nasdaq").build()));
+
+        int changes = cikExchangeDownloadService.syncStocks(testData);
 
-        cikExchangeDownloadService.downloadCikData();
+        ArgumentCaptor<List<Stock>> inserts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Stock>> updates = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<StockId>> deletes = ArgumentCaptor.forClass(List.class);
+        verify(cikRepository).batchInsert(inserts.capture());
+        verify(cikRepository).batchUpdateNameAndExchange(updates.capture());
+        verify(cikRepository).batchDelete(deletes.capture());
+        verify(cikRepository, never()).save(any(Stock.class));
 
-        verify(cikRepository, atLeastOnce()).save(any(Stock.class));
+        assertEquals(3, changes);
+        assertEquals("BRK-B", inserts.getValue().get(0).getTicker());
+        assertEquals(1, updates.getValue().size());
+        assertEquals("MICROSOFT CORP", updates.getValue().get(0).getName());
+        assertEquals(List.of(new StockId(1318605L, "TSLA")), deletes.getValue());
+        verify(eventPublisher).publishEvent(any(StockDataChangedEvent.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDeletesAreSkippedWhenTooManyStocksAreMissing() throws IOException {
+        when(cikRepository.findAll()).thenReturn(List.of(
+                Stock.builder().cik(320193L).ticker("AAPL").name("Apple Inc.").exchange("Nasdaq").build(),
+                Stock.builder().cik(1318605L).ticker("TSLA").name("Tesla, Inc.").exchange("Nasdaq").build(),
+                Stock.builder().cik(1045810L).ticker("NVDA").name("NVIDIA CORP").exchange("Nasdaq").build()));
+
+        cikExchangeDownloadService.syncStocks("""
+                {"fields":["cik","name","ticker","exchange"],"data":[[320193,"Apple Inc.","AAPL","Nasdaq"]]}
+                """.getBytes(StandardCharsets.UTF_8));
+
+        ArgumentCaptor<List<StockId>> deletes = ArgumentCaptor.forClass(List.class);
+        verify(cikRepository).batchDelete(deletes.capture());
+        assertEquals(List.of(), deletes.getValue());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testUnchangedDownloadIsSkipped() throws IOException {
+        ProcessExecutionRepository processExecutionRepository = mock(ProcessExecutionRepository.class);
+        ReflectionTestUtils.setField(cikExchangeDownloadService, "processExecutionRepository", processExecutionRepository);
+        EdgarConfig cacheConfig = new EdgarConfig();
+        cacheConfig.setHttpCacheEnabled(false);
+        HttpResponseCache httpResponseCache = new HttpResponseCache(cacheConfig);
+        ReflectionTestUtils.setField(cikExchangeDownloadService, "httpResponseCache", httpResponseCache);
+        SecRateLimiter secRateLimiter = mock(SecRateLimiter.class);
+        ReflectionTestUtils.setField(cikExchangeDownloadService, "secRateLimiter", secRateLimiter);
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setInterceptors(List.of((request, requestBody, execution) -> {
+            request.getHeaders().set("User-Agent", "Edgar test@example.com");
+            return execution.execute(request, requestBody);
+        }, new HttpResponseCacheInterceptor(httpResponseCache, secRateLimiter)));
+        ReflectionTestUtils.setField(cikExchangeDownloadService, "restTemplate", restTemplate);
+        byte[] body = "{\"fields\":[],\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+        AtomicReference<String> ifNoneMatch = new AtomicReference<>();
+        AtomicReference<String> userAgent = new AtomicReference<>();
+        AtomicReference<String> etag = new AtomicReference<>("\"v1\"");
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/tickers.json", exchange -> {
+            ifNoneMatch.set(exchange.getRequestHeaders().getFirst("If-None-Match"));
+            userAgent.set(exchange.getRequestHeaders().getFirst("User-Agent"));
+            if (etag.get().equals(ifNoneMatch.get())) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.getResponseHeaders().set("ETag", etag.get());
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/tickers.json";
+            when(processExecutionRepository.findByName("TEST")).thenReturn(Optional.empty());
+            ConditionalDownload download = cikExchangeDownloadService.downloadIfChanged("TEST", url).orElseThrow();
+            assertEquals("\"v1\"", download.getEtag());
+            assertEquals("Edgar test@example.com", userAgent.get());
+
+            ProcessExecution lastExecution = ProcessExecution.builder()
+                    .name("TEST")
+                    .etag(download.getEtag())
+                    .contentHash(download.getContentHash())
+                    .build();
+            when(processExecutionRepository.findByName("TEST")).thenReturn(Optional.of(lastExecution));
+            assertTrue(cikExchangeDownloadService.downloadIfChanged("TEST", url).isEmpty());
+            assertEquals("\"v1\"", ifNoneMatch.get());
+
+            // A new ETag with the same body is skipped by its hash
+            etag.set("\"v2\"");
+            assertTrue(cikExchangeDownloadService.downloadIfChanged("TEST", url).isEmpty());
+            verify(secRateLimiter, times(3)).acquire();
+        } finally {
+            server.stop(0);
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.Stock;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompanyPageExtractorTest {
+
+    private final CompanyPageExtractor extractor = new CompanyPageExtractor();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"apple.html", "berkshire.html", "no-sic.html", "multiline.html", "long-sector.html",
+            "unicode.html", "no-matching-ticker.html", "no-matching-cik.html"})
+    public void testExtractMatchesJsoup(String name) throws IOException {
+        byte[] page;
+        try (InputStream inputStream = getClass().getResourceAsStream("/files/company-pages/" + name)) {
+            page = inputStream.readAllBytes();
+        }
+
+        Stock.EnrichedData expected = EdgarSectorEnrichServiceImpl.parseEnrichedData(
+                Jsoup.parse(new String(page, StandardCharsets.UTF_8)), name);
+        // Reuses the scratch buffers of the previous pages
+        Stock.EnrichedData actual = extractor.extract(page, page.length);
+
+        assertEquals(expected.getSic(), actual.getSic());
+        assertEquals(expected.getSector(), actual.getSector());
+    }
+
+    @Test
+    public void testExtract() throws IOException {
+        byte[] page = """
+                <p class="identInfo">SIC: <a href="/cgi-bin/browse-edgar?SIC=6331">6331</a> - FIRE, MARINE &amp; CASUALTY INSURANCE<br />
+                State location: <a href="#">NE</a></p>
+                """.getBytes(StandardCharsets.UTF_8);
+
+        Stock.EnrichedData enrichedData = extractor.extract(page, page.length);
+
+        assertEquals("6331", enrichedData.getSic());
+        assertEquals("FIRE, MARINE & CASUALTY INSURANCE", enrichedData.getSector());
+    }
+
+    @Test
+    public void testExtractWithoutCompanyInformation() {
+        byte[] page = "<p class=\"identInfoExtra\">SIC: <a>3571</a></p><div class=\"identInfo\"></div>".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> extractor.extract(page, page.length));
+    }
+}
@@ -0,0 +1,51 @@
+package com.jds.edgar.cik.download.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jds.edgar.cik.download.service.CompanyTickersParser.CompanyTicker;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompanyTickersParserTest {
+
+    private final CompanyTickersParser parser = new CompanyTickersParser(new ObjectMapper());
+
+    @Test
+    public void testParseCompanyTickers() throws IOException {
+        List<CompanyTicker> tickers = new ArrayList<>();
+        parser.parseCompanyTickers("""
+                {"0":{"cik_str":320193,"ticker":"AAPL","title":"Apple Inc."},
+                 "1":{"ticker":"MSFT","title":"MICROSOFT CORP","extra":{"a":[1]},"cik_str":"789019"}}
+                """.getBytes(StandardCharsets.UTF_8), tickers::add);
+
+        assertEquals(List.of(
+                new CompanyTicker(320193, "AAPL", "Apple Inc.", null),
+                new CompanyTicker(789019, "MSFT", "MICROSOFT CORP", null)), tickers);
+    }
+
+    @Test
+    public void testParseCompanyTickersExchangeFollowsTheFields() throws IOException {
+        List<CompanyTicker> tickers = new ArrayList<>();
+        parser.parseCompanyTickersExchange("""
+                {"fields":["ticker","cik","exchange","name"],"data":[
+                 ["AAPL",320193,"Nasdaq","Apple Inc."],
+                 ["XYZ",1000,null,"No Exchange Corp"]],"other":{"skipped":true}}
+                """.getBytes(StandardCharsets.UTF_8), tickers::add);
+
+        assertEquals(List.of(
+                new CompanyTicker(320193, "AAPL", "Apple Inc.", "Nasdaq"),
+                new CompanyTicker(1000, "XYZ", "No Exchange Corp", null)), tickers);
+    }
+
+    @Test
+    public void testRejectsAnythingButAnObject() {
+        assertThrows(IOException.class, () -> parser.parseCompanyTickersExchange("[]".getBytes(StandardCharsets.UTF_8), ticker -> {
+        }));
+    }
+}
@@ -0,0 +1,89 @@
+package com.jds.edgar.cik.download.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CusipExtractorTest {
+
+    private static final String HEADER = """
+            <SEC-HEADER>0000950123-23-001234.hdr.sgml : 20230214
+            ACCESSION NUMBER:		0000950123-23-001234
+            CONFORMED SUBMISSION TYPE:	SC 13G
+            FILED AS OF DATE:		20230214
+
+            FILED BY:
+
+            	COMPANY DATA:
+            		COMPANY CONFORMED NAME:			VANGUARD GROUP INC
+            		CENTRAL INDEX KEY:			0000102909
+
+            SUBJECT COMPANY:
+
+            	COMPANY DATA:
+            		COMPANY CONFORMED NAME:			Apple Inc.
+            		CENTRAL INDEX KEY:			0000320193
+            </SEC-HEADER>
+            """;
+
+    private final CusipExtractor extractor = new CusipExtractor();
+
+    @Test
+    public void testCusipAfterLabelUsesSubjectCompanyCik() {
+        CusipExtractor.Match match = extract(HEADER + "<TEXT>\nCUSIP No. 037833100            13G            Page 2 of 5\n");
+
+        assertNotNull(match);
+        assertEquals(320193L, match.cik());
+        assertEquals("037833", match.cusip6());
+        assertEquals("03783310", match.cusip8());
+    }
+
+    @Test
+    public void testCusipAboveCaptionWithSeparators() {
+        String cover = """
+                <TEXT>
+                                      Common Stock
+                              (Title of Class of Securities)
+
+                                       037833 10 0
+                              ---------------------------
+                                     (CUSIP Number)
+                """;
+
+        CusipExtractor.Match match = extract(HEADER + cover);
+
+        assertNotNull(match);
+        assertEquals("03783310", match.cusip8());
+    }
+
+    @Test
+    public void testInvalidCheckDigitIsRejected() {
+        assertNull(extract(HEADER + "<TEXT>\nCUSIP No. 037833109\n"));
+    }
+
+    @Test
+    public void testMostFrequentCusipWins() {
+        String text = HEADER + "<TEXT>\nCUSIP No. 037833100\nCUSIP No. 594918104\nCUSIP No. 037833100\n";
+
+        assertEquals("03783310", extract(text).cusip8());
+    }
+
+    @Test
+    public void testFilingWithoutSubjectCompanyIsSkipped() {
+        assertNull(extract("<SEC-HEADER>\nFILED BY:\n\t\tCENTRAL INDEX KEY:\t0000102909\n</SEC-HEADER>\nCUSIP No. 037833100\n"));
+    }
+
+    @Test
+    public void testCheckDigit() {
+        assertTrue(CusipExtractor.hasValidCheckDigit("594918104".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(CusipExtractor.hasValidCheckDigit("G0450A105".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(CusipExtractor.hasValidCheckDigit("594918105".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private CusipExtractor.Match extract(String text) {
+        byte[] content = text.getBytes(StandardCharsets.US_ASCII);
+        return extractor.extract(content, content.length);
+    }
+}
@@ -0,0 +1,66 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.CikCusipMaps;
+import com.jds.edgar.cik.download.repository.CikCusipMapsRepository;
+import com.jds.edgar.cik.download.util.CikCusipSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class CusipMappingLoaderServiceTest {
+
+    @Mock
+    private CikCusipMapsRepository cikCusipMapsRepository;
+
+    @InjectMocks
+    private CusipMappingLoaderServiceImpl cusipMappingLoaderService;
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDuplicatesAndInvalidRowsAreDropped() throws IOException {
+        String csv = """
+                ,cik,cusip6
+                0,320193,037833100
+                1,320193,037833100
+                2,320193,03783310
+                3,789019,594918104
+                4,789019,000000000
+                5,789019,59491
+                6,,594918104
+                """;
+        CikCusipSet seen = new CikCusipSet();
+        seen.add(789019L, "59491810");
+
+        long upserted = cusipMappingLoaderService.loadMappings(new BufferedReader(new StringReader(csv)), seen);
+
+        ArgumentCaptor<List<CikCusipMaps>> captor = ArgumentCaptor.forClass(List.class);
+        verify(cikCusipMapsRepository).batchUpsert(captor.capture());
+        assertEquals(1, upserted);
+        assertEquals(1, captor.getValue().size());
+        CikCusipMaps mapping = captor.getValue().get(0);
+        assertEquals(320193L, mapping.getCik());
+        assertEquals("037833", mapping.getCusip6());
+        assertEquals("03783310", mapping.getCusip8());
+    }
+
+    @Test
+    public void testParseUppercasesCusip() {
+        CikCusipMaps mapping = CusipMappingLoaderServiceImpl.parse("7,1467858,g0450a105");
+
+        assertNotNull(mapping);
+        assertEquals("G0450A10", mapping.getCusip8());
+        assertNull(CusipMappingLoaderServiceImpl.parse("8,1467858,0001pt123"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.jds.edgar.cik.download.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.SectorEnrichmentResult;
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockDataChangedEvent;
+import com.jds.edgar.cik.download.repository.StockRepository;
+import com.jds.edgar.cik.download.store.HttpResponseCache;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EdgarSectorEnrichServiceTest {
+    @Mock
+    private EdgarConfig edgarConfig;
+
+    @Mock
+    private StockRepository cikRepository;
+
+    @Mock
+    private StockLookupCache stockLookupCache;
+
+    @Mock
+    private SecRateLimiter secRateLimiter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private HttpResponseCache httpResponseCache;
+
+    @Spy
+    private SubmissionsParser submissionsParser = new SubmissionsParser(new ObjectMapper());
+
+    @Spy
+    @InjectMocks
+    private EdgarSectorEnrichServiceImpl edgarSectorEnrichService;
+
+    @Test
+    public void testEachCikPageIsFetchedOnceForAllItsTickers() throws IOException {
+        Stock.EnrichedData apple = Stock.EnrichedData.builder().sic("3571").sector("Electronic Computers").build();
+        when(edgarConfig.getSectorEnrichBatchSize()).thenReturn(50);
+        when(edgarConfig.getSectorEnrichConcurrency()).thenReturn(4);
+        when(cikRepository.findCiksToEnrich(50)).thenReturn(List.of(320193L, 1L));
+        doReturn(apple).when(edgarSectorEnrichService).extractData("320193");
+        doThrow(new IOException("Read timed out")).when(edgarSectorEnrichService).extractData("1");
+        when(cikRepository.findByCikIn(List.of(320193L, 1L))).thenReturn(List.of(
+                Stock.builder().cik(320193L).ticker("AAPL").build(),
+                Stock.builder().cik(320193L).ticker("AAPL-WT").build(),
+                Stock.builder().cik(1L).ticker("ONE").build()));
+
+        SectorEnrichmentResult result = edgarSectorEnrichService.enrichNextBatch();
+
+        verify(edgarSectorEnrichService, times(1)).extractData("320193");
+        verify(cikRepository).batchUpdateEnrichedData(Map.of(320193L, apple));
+        verify(cikRepository).batchUpdateLastError(Map.of(1L, "Read timed out"));
+        verify(cikRepository, never()).save(any());
+        verify(stockLookupCache).invalidate(320193L, "AAPL-WT");
+        verify(eventPublisher).publishEvent(any(StockDataChangedEvent.class));
+        assertEquals(2, result.getCiks());
+        assertEquals(1, result.getEnrichedCiks());
+        assertEquals(1, result.getFailedCiks());
+        assertEquals(2, result.getStocksUpdated());
+    }
+
+    @Test
+    public void testParseEnrichedData() {
+        String html = """
+                <div class="companyInfo"><span class="companyName">Apple Inc. CIK#: 0000320193</span>
+                <p class="identInfo">SIC: <a href="/cgi-bin/browse-edgar?SIC=3571">3571</a> - ELECTRONIC COMPUTERS<br />
+                State location: <a href="#">CA</a> | State of Inc.: <strong>CA</strong></p></div>
+                """;
+
+        Stock.EnrichedData enrichedData = EdgarSectorEnrichServiceImpl.parseEnrichedData(Jsoup.parse(html), "AAPL");
+
+        assertEquals("3571", enrichedData.getSic());
+        assertEquals("ELECTRONIC COMPUTERS", enrichedData.getSector());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testEnrichFromSubmissionsArchive(@TempDir Path folder) throws IOException {
+        Path archive = folder.resolve("submissions.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            addEntry(zip, "CIK0000320193.json", """
+                    {"cik":"320193","entityType":"operating","sic":"3571","sicDescription":"Electronic Computers",
+                     "name":"Apple Inc.","tickers":["AAPL"],"exchanges":["Nasdaq"],
+                     "formerNames":[{"name":"APPLE COMPUTER INC"}],"filings":{"recent":{"form":["10-K"]}}}
+                    """);
+            addEntry(zip, "CIK0000320193-submissions-001.json", "{\"form\":[\"8-K\"]}");
+            addEntry(zip, "CIK0001067983.json", """
+                    {"cik":"1067983","tickers":["BRK-A","BRK-B"],"exchanges":["NYSE","NYSE"],
+                     "sicDescription":"Fire, Marine & Casualty Insurance","sic":"6331"}
+                    """);
+            addEntry(zip, "CIK0000000001.json", "{\"cik\":\"1\",\"sic\":\"1000\"}");
+            addEntry(zip, "CIK0000000002.json", "not json");
+        }
+        when(edgarConfig.getSubmissionsArchive()).thenReturn(archive.toString());
+        when(cikRepository.findAll()).thenReturn(List.of(
+                Stock.builder().cik(320193L).ticker("AAPL").build(),
+                Stock.builder().cik(1067983L).ticker("BRK-B").exchange("NYSE").build(),
+                Stock.builder().cik(1067983L).ticker("BRK.B").build(),
+                Stock.builder().cik(2L).ticker("TWO").build()));
+
+        SectorEnrichmentResult result = edgarSectorEnrichService.enrichFromSubmissionsArchive();
+
+        ArgumentCaptor<List<Stock>> updates = ArgumentCaptor.forClass(List.class);
+        verify(cikRepository).batchUpdateSicSectorAndExchange(updates.capture());
+        List<Stock> stocks = updates.getValue().stream().sorted(Comparator.comparing(Stock::getTicker)).toList();
+        assertEquals(List.of("AAPL", "BRK-B", "BRK.B"), stocks.stream().map(Stock::getTicker).toList());
+        assertEquals("3571", stocks.get(0).getSic());
+        assertEquals("ELECTRONIC COMPUTERS", stocks.get(0).getSector());
+        assertEquals("Nasdaq", stocks.get(0).getExchange());
+        assertEquals("FIRE, MARINE & CASUALTY INSURANCE", stocks.get(2).getSector());
+        assertNull(stocks.get(2).getExchange());
+        verify(stockLookupCache).invalidateAll();
+        assertEquals(3, result.getCiks());
+        assertEquals(1, result.getFailedCiks());
+        assertEquals(3, result.getStocksUpdated());
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
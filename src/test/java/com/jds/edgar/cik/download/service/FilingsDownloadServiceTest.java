@@ -0,0 +1,120 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.FullIndex;
+import com.jds.edgar.cik.download.model.FullIndexCheckpoint;
+import com.jds.edgar.cik.download.repository.FullIndexCheckpointRepository;
+import com.jds.edgar.cik.download.repository.FullIndexRepository;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FilingsDownloadServiceTest {
+    @Mock
+    private EdgarConfig edgarConfig;
+
+    @Mock
+    private FullIndexRepository fullIndexRepository;
+
+    @Mock
+    private FullIndexCheckpointRepository fullIndexCheckpointRepository;
+
+    @InjectMocks
+    private FilingsDownloadServiceImpl filingsDownloadService;
+
+    @Captor
+    private ArgumentCaptor<List<FullIndex>> batchCaptor;
+
+    @Test
+    public void testParseMasterIdxInBatches() throws IOException {
+        List<FullIndex> savedRows = new ArrayList<>();
+        when(edgarConfig.getFullIndexBatchSize()).thenReturn(10);
+        when(fullIndexRepository.batchUpsert(anyList())).thenAnswer(invocation -> {
+            List<FullIndex> batch = invocation.getArgument(0);
+            savedRows.addAll(batch);
+            return batch.size();
+        });
+
+        long rows;
+        try (InputStream masterIdx = getClass().getResourceAsStream("/files/master.idx")) {
+            rows = filingsDownloadService.parseMasterIdx(masterIdx);
+        }
+
+        assertEquals(26, rows);
+        assertEquals(26, savedRows.size());
+        verify(fullIndexRepository, times(3)).batchUpsert(anyList());
+        verify(fullIndexRepository, never()).save(any(FullIndex.class));
+
+        FullIndex first = savedRows.get(0);
+        assertEquals(1000072L, first.getCik());
+        assertEquals("LIPPER FUNDS INC", first.getCompanyName());
+        assertEquals("N-18F1", first.getFormType());
+        assertEquals("1995-12-28", first.getDateFiled());
+        assertEquals("edgar/data/1000072/0000949365-95-000014.txt", first.getFilename());
+
+        FullIndex last = savedRows.get(savedRows.size() - 1);
+        assertEquals(100030L, last.getCik());
+        assertEquals("10-Q", last.getFormType());
+    }
+
+    @Test
+    public void testParseMasterIdxContent() throws IOException {
+        when(edgarConfig.getFullIndexBatchSize()).thenReturn(5000);
+        when(fullIndexRepository.batchUpsert(anyList())).thenAnswer(invocation -> invocation.<List<FullIndex>>getArgument(0).size());
+
+        String content;
+        try (InputStream masterIdx = getClass().getResourceAsStream("/files/master.idx")) {
+            content = new String(masterIdx.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        filingsDownloadService.parseMasterIdxContent(content);
+
+        verify(fullIndexRepository, times(1)).batchUpsert(batchCaptor.capture());
+        assertEquals(26, batchCaptor.getValue().size());
+    }
+
+    @Test
+    public void testPendingQuartersSkipsCompletedQuarters() {
+        when(fullIndexCheckpointRepository.findByStatus(FullIndexCheckpoint.Status.COMPLETED)).thenReturn(List.of(
+                FullIndexCheckpoint.builder().year(1994).quarter(1).status(FullIndexCheckpoint.Status.COMPLETED).build(),
+                FullIndexCheckpoint.builder().year(1994).quarter(2).status(FullIndexCheckpoint.Status.COMPLETED).build()));
+
+        List<Pair<Integer, Integer>> quarters = filingsDownloadService.pendingQuarters(LocalDate.of(1995, 5, 15));
+
+        assertEquals(List.of(Pair.of(1994, 3), Pair.of(1994, 4), Pair.of(1995, 1), Pair.of(1995, 2)), quarters);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testPendingQuartersSeedsCheckpointsFromLoadedIndex() {
+        when(fullIndexCheckpointRepository.count()).thenReturn(0L);
+        when(fullIndexRepository.findLatestDateFiled()).thenReturn(Optional.of("1995-05-02"));
+
+        filingsDownloadService.pendingQuarters(LocalDate.of(1995, 8, 15));
+
+        ArgumentCaptor<List<FullIndexCheckpoint>> captor = ArgumentCaptor.forClass(List.class);
+        verify(fullIndexCheckpointRepository).saveAll(captor.capture());
+        assertEquals(List.of(Pair.of(1994, 1), Pair.of(1994, 2), Pair.of(1994, 3), Pair.of(1994, 4), Pair.of(1995, 1)),
+                captor.getValue().stream().map(checkpoint -> Pair.of(checkpoint.getYear(), checkpoint.getQuarter())).toList());
+        assertTrue(captor.getValue().stream().allMatch(checkpoint -> checkpoint.getStatus() == FullIndexCheckpoint.Status.COMPLETED));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.FilingIndexEntry;
+import com.jds.edgar.cik.download.repository.FullIndexRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FullIndexPageIteratorTest {
+    @Mock
+    private FullIndexRepository fullIndexRepository;
+
+    @Test
+    public void testPagesAreFetchedAfterTheLastSeenId() {
+        when(fullIndexRepository.findPageByFormType(eq("SC 13G"), eq(0L), any())).thenReturn(List.of(entry(3), entry(7)));
+        when(fullIndexRepository.findPageByFormType(eq("SC 13G"), eq(7L), any())).thenReturn(List.of(entry(9)));
+
+        FullIndexPageIterator iterator = new FullIndexPageIterator(fullIndexRepository, "SC 13G", 2);
+        List<Long> ids = new ArrayList<>();
+        iterator.forEachRemaining(entry -> ids.add(entry.getId()));
+
+        assertEquals(List.of(3L, 7L, 9L), ids);
+        // The short second page is the last one, no further query is needed
+        verify(fullIndexRepository, times(2)).findPageByFormType(eq("SC 13G"), anyLong(), any());
+    }
+
+    private static FilingIndexEntry entry(long id) {
+        return new FilingIndexEntry(id, 1000185L, "SC 13G", "1995-12-08", "edgar/data/1000185/0000918851-95-0000" + id + ".txt");
+    }
+}
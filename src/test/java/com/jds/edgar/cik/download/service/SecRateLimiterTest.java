@@ -0,0 +1,51 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SecRateLimiterTest {
+
+    @Test
+    public void testFirstSecondStaysUnderLimit() {
+        EdgarConfig edgarConfig = new EdgarConfig();
+        edgarConfig.setMaxRequestsPerSecond(10);
+        long start = System.nanoTime();
+        SecRateLimiter secRateLimiter = new SecRateLimiter(edgarConfig);
+
+        int acquiredInFirstSecond = 0;
+        long elapsed = 0;
+        for (int i = 0; i < 15; i++) {
+            secRateLimiter.acquire();
+            elapsed = System.nanoTime() - start;
+            // The bucket clock has millisecond precision, a token may come up to a millisecond before its interval
+            if (elapsed < TimeUnit.MILLISECONDS.toNanos(990)) {
+                acquiredInFirstSecond++;
+            }
+        }
+
+        assertTrue(acquiredInFirstSecond <= 10, acquiredInFirstSecond + " requests in the first second");
+        // 15 requests need 14 refill intervals of 100 ms
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(1390), "15 requests took " + elapsed + " ns");
+    }
+
+    @Test
+    public void testInterruptDuringBackOffAbortsAcquire() {
+        EdgarConfig edgarConfig = new EdgarConfig();
+        edgarConfig.setRetryDelay(60_000L);
+        SecRateLimiter secRateLimiter = new SecRateLimiter(edgarConfig);
+        secRateLimiter.backOff();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(IllegalStateException.class, secRateLimiter::acquire);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SnapshotExportServiceTest {
+
+    @Mock
+    private EdgarConfig edgarConfig;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ResultSet dictionaryResultSet;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @InjectMocks
+    private SnapshotExportServiceImpl snapshotExportService;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testStocksAreWrittenWithDictionaryEncodedColumns() throws Exception {
+        // The dictionary pass reads exchange, sic and sector, then the rows are read with every column
+        when(dictionaryResultSet.getString(1)).thenReturn("NYSE", "Nasdaq");
+        when(dictionaryResultSet.getString(2)).thenReturn("3571");
+        when(dictionaryResultSet.getString(3)).thenReturn("Electronic Computers");
+        when(resultSet.getLong(1)).thenReturn(320193L, 1067983L);
+        when(resultSet.wasNull()).thenReturn(false);
+        when(resultSet.getString(anyInt())).thenAnswer(invocation -> switch ((int) invocation.getArgument(0)) {
+            case 2 -> "AAPL";
+            case 4 -> "Nasdaq";
+            case 5 -> "3571";
+            case 6 -> "Electronic Computers";
+            default -> null;
+        });
+        stubPasses(2, 2);
+
+        Path file = tempDir.resolve("stocks.arrow");
+        assertEquals(2, snapshotExportService.exportTable("stocks", file));
+
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(FileChannel.open(file), allocator, CommonsCompressionFactory.INSTANCE)) {
+            assertTrue(reader.loadNextBatch());
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(2, root.getRowCount());
+            assertEquals(1067983L, ((BigIntVector) root.getVector("cik")).get(1));
+            assertEquals("AAPL", ((VarCharVector) root.getVector("ticker")).getObject(0).toString());
+            assertTrue(root.getVector("name").isNull(0));
+
+            FieldVector exchange = root.getVector("exchange");
+            long dictionaryId = exchange.getField().getDictionary().getId();
+            try (VarCharVector decoded = (VarCharVector) DictionaryEncoder.decode(exchange, reader.getDictionaryVectors().get(dictionaryId))) {
+                assertEquals("Nasdaq", decoded.getObject(1).toString());
+            }
+            assertFalse(reader.loadNextBatch());
+        }
+    }
+
+    @Test
+    public void testValuesDifferingOnlyByCaseOrTrailingSpacesKeepTheirOwnEntries() throws Exception {
+        String[] exchanges = {"Nasdaq", "NASDAQ "};
+        AtomicInteger dictionaryRow = new AtomicInteger();
+        AtomicInteger row = new AtomicInteger();
+        when(dictionaryResultSet.getString(anyInt())).thenAnswer(invocation ->
+                (int) invocation.getArgument(0) == 1 ? exchanges[dictionaryRow.getAndIncrement()] : null);
+        when(resultSet.getString(anyInt())).thenAnswer(invocation -> switch ((int) invocation.getArgument(0)) {
+            case 2 -> "AAPL";
+            case 4 -> exchanges[row.getAndIncrement()];
+            default -> null;
+        });
+        stubPasses(2, 2);
+
+        Path file = tempDir.resolve("stocks.arrow");
+        snapshotExportService.exportTable("stocks", file);
+
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(FileChannel.open(file), allocator, CommonsCompressionFactory.INSTANCE)) {
+            assertTrue(reader.loadNextBatch());
+            FieldVector exchange = reader.getVectorSchemaRoot().getVector("exchange");
+            long dictionaryId = exchange.getField().getDictionary().getId();
+            try (VarCharVector decoded = (VarCharVector) DictionaryEncoder.decode(exchange, reader.getDictionaryVectors().get(dictionaryId))) {
+                assertEquals("Nasdaq", decoded.getObject(0).toString());
+                assertEquals("NASDAQ ", decoded.getObject(1).toString());
+            }
+        }
+    }
+
+    @Test
+    public void testValueMissingFromItsDictionaryFailsTheExport() throws Exception {
+        when(dictionaryResultSet.getString(anyInt())).thenAnswer(invocation -> (int) invocation.getArgument(0) == 1 ? "NYSE" : null);
+        when(resultSet.getString(anyInt())).thenAnswer(invocation -> (int) invocation.getArgument(0) == 4 ? "Nasdaq" : null);
+        stubPasses(1, 1);
+
+        Path file = tempDir.resolve("stocks.arrow");
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> snapshotExportService.exportTable("stocks", file));
+        assertTrue(exception.getMessage().contains("stocks.exchange"));
+    }
+
+    /**
+     * Feeds the dictionary pass and the row pass of the export from their own result sets.
+     */
+    private void stubPasses(int dictionaryRows, int rows) {
+        AtomicInteger passes = new AtomicInteger();
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            boolean dictionaryPass = passes.getAndIncrement() == 0;
+            for (int i = 0; i < (dictionaryPass ? dictionaryRows : rows); i++) {
+                handler.processRow(dictionaryPass ? dictionaryResultSet : resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    public void testUnknownTableHasNoSnapshot() throws IOException {
+        assertTrue(snapshotExportService.snapshotFile("process_execution").isEmpty());
+    }
+}
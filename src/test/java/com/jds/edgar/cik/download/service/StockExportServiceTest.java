@@ -0,0 +1,104 @@
+package com.jds.edgar.cik.download.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StockExportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @InjectMocks
+    private StockExportServiceImpl stockExportService;
+
+    @Test
+    public void testRowsAreQuotedWhenNeeded() throws IOException, SQLException {
+        when(resultSet.getString(1)).thenReturn("320193", "1067983");
+        when(resultSet.getString(2)).thenReturn("Apple Inc.", "Berkshire Hathaway Inc, \"BRK\"");
+        when(resultSet.getString(3)).thenReturn("Electronic Computers", (String) null);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        StringWriter writer = new StringWriter();
+        List<StockExportServiceImpl.Column> columns = StockExportServiceImpl.parseColumns(List.of("cik", "Name", "SECTOR"));
+        long rows = stockExportService.exportCsv(columns, null, null, null, writer);
+
+        assertEquals(2, rows);
+        assertEquals("CIK,Name,Sector\n" +
+                "320193,Apple Inc.,Electronic Computers\n" +
+                "1067983,\"Berkshire Hathaway Inc, \"\"BRK\"\"\",\n", writer.toString());
+    }
+
+    @Test
+    public void testFiltersAreBoundAsParameters() throws IOException, SQLException {
+        ArgumentCaptor<PreparedStatementCreator> captor = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(connection.getMetaData()).thenReturn(metaData);
+
+        stockExportService.exportCsv(StockExportServiceImpl.DEFAULT_COLUMNS, "Technology", null, "Nasdaq", new StringWriter());
+
+        verify(jdbcTemplate).query(captor.capture(), any(RowCallbackHandler.class));
+        captor.getValue().createPreparedStatement(connection);
+        verify(connection).prepareStatement(eq("SELECT cik, ticker, name, sector, sic FROM stocks WHERE 1 = 1 AND sector = ? AND exchange = ? ORDER BY cik, ticker"), anyInt(), anyInt());
+        verify(statement).setFetchSize(Integer.MIN_VALUE);
+        verify(statement).setObject(1, "Technology");
+        verify(statement).setObject(2, "Nasdaq");
+    }
+
+    @Test
+    public void testPostgresStreamsThroughCursor() throws IOException, SQLException {
+        ArgumentCaptor<PreparedStatementCreator> captor = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        stockExportService.exportCsv(StockExportServiceImpl.DEFAULT_COLUMNS, null, null, null, new StringWriter());
+
+        verify(jdbcTemplate).query(captor.capture(), any(RowCallbackHandler.class));
+        captor.getValue().createPreparedStatement(connection);
+        verify(connection).setAutoCommit(false);
+        verify(statement).setFetchSize(intThat(fetchSize -> fetchSize > 0));
+    }
+
+    @Test
+    public void testUnknownColumnIsRejected() {
+        assertThrows(ResponseStatusException.class, () -> StockExportServiceImpl.parseColumns(List.of("cik", "password")));
+    }
+}
@@ -0,0 +1,110 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.model.StockResolution;
+import com.jds.edgar.cik.download.model.StockResolveRequest;
+import com.jds.edgar.cik.download.repository.CikCusipMapsRepository;
+import com.jds.edgar.cik.download.repository.StockRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StockIndexServiceTest {
+
+    @Mock
+    private StockRepository stockRepository;
+
+    @Mock
+    private CikCusipMapsRepository cikCusipMapsRepository;
+
+    @Mock
+    private StockLookupCache stockLookupCache;
+
+    @InjectMocks
+    private StockIndexServiceImpl stockIndexService;
+
+    private final Stock apple = Stock.builder().cik(320193L).ticker("AAPL").cusip6("037833").cusip8("03783310").build();
+    private final Stock brkA = Stock.builder().cik(1067983L).ticker("BRK-A").build();
+    private final Stock brkB = Stock.builder().cik(1067983L).ticker("BRK-B").build();
+
+    private final StockResolveRequest request = StockResolveRequest.builder()
+            .ciks(List.of(1067983L, 1L))
+            .tickers(List.of("AAPL", "MSFT"))
+            .cusips(List.of("037833100", "037833"))
+            .build();
+
+    @Test
+    public void testResolveFromIndex() {
+        when(stockRepository.findAll(any(Sort.class))).thenReturn(List.of(apple, brkA, brkB));
+        when(cikCusipMapsRepository.findAllOfStocks()).thenReturn(List.of());
+        stockIndexService.rebuild();
+
+        List<StockResolution> resolutions = new ArrayList<>();
+        stockIndexService.resolve(request, resolutions::add);
+
+        assertResolutions(resolutions);
+        verify(stockRepository, never()).findByTickerIn(anyCollection());
+    }
+
+    @Test
+    public void testResolveFromDatabaseWithOneQueryPerType() {
+        when(stockRepository.findByCikIn(anyCollection())).thenReturn(List.of(brkA, brkB));
+        when(stockRepository.findByTickerIn(anyCollection())).thenReturn(List.of(apple));
+        when(stockRepository.findByCusip6In(anyCollection())).thenReturn(List.of(apple));
+        when(stockRepository.findByCusip8In(anyCollection())).thenReturn(List.of(apple));
+
+        List<StockResolution> resolutions = new ArrayList<>();
+        stockIndexService.resolve(request, resolutions::add);
+
+        assertResolutions(resolutions);
+        verify(stockRepository, times(1)).findByCikIn(List.of(1067983L, 1L));
+        verify(stockRepository, times(1)).findByTickerIn(List.of("AAPL", "MSFT"));
+        verify(stockRepository, never()).findByTicker(any());
+    }
+
+    @Test
+    public void testTickersAreResolvedIgnoringCase() {
+        StockResolveRequest lowerCase = StockResolveRequest.builder().tickers(List.of("aapl")).build();
+        when(stockRepository.findByTickerIn(anyCollection())).thenReturn(List.of(apple));
+
+        List<StockResolution> fromDatabase = new ArrayList<>();
+        stockIndexService.resolve(lowerCase, fromDatabase::add);
+
+        when(stockRepository.findAll(any(Sort.class))).thenReturn(List.of(apple, brkA, brkB));
+        when(cikCusipMapsRepository.findAllOfStocks()).thenReturn(List.of());
+        stockIndexService.rebuild();
+        List<StockResolution> fromIndex = new ArrayList<>();
+        stockIndexService.resolve(lowerCase, fromIndex::add);
+
+        verify(stockRepository).findByTickerIn(List.of("AAPL"));
+        assertEquals(apple, fromDatabase.get(0).getStock());
+        assertEquals(apple, fromIndex.get(0).getStock());
+        assertEquals("aapl", fromIndex.get(0).getIdentifier());
+        assertEquals(apple, stockIndexService.findByTicker("aapl").orElseThrow());
+    }
+
+    private void assertResolutions(List<StockResolution> resolutions) {
+        assertEquals(7, resolutions.size());
+        assertEquals(brkA, resolutions.get(0).getStock());
+        assertEquals(brkB, resolutions.get(1).getStock());
+        assertEquals("1", resolutions.get(2).getIdentifier());
+        assertNull(resolutions.get(2).getStock());
+        assertEquals(apple, resolutions.get(3).getStock());
+        assertNull(resolutions.get(4).getStock());
+        assertEquals(StockResolution.Type.CUSIP, resolutions.get(5).getType());
+        assertEquals(apple, resolutions.get(5).getStock());
+        assertEquals(apple, resolutions.get(6).getStock());
+    }
+}
@@ -0,0 +1,57 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.model.CikCusipMaps;
+import com.jds.edgar.cik.download.model.Stock;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockIndexTest {
+
+    private final Stock brkB = Stock.builder().cik(1067983L).ticker("BRK-B").name("Berkshire Hathaway").build();
+    private final Stock brkA = Stock.builder().cik(1067983L).ticker("BRK-A").name("Berkshire Hathaway").build();
+    private final Stock apple = Stock.builder().cik(320193L).ticker("AAPL").name("Apple Inc.").cusip6("037833").cusip8("03783310").build();
+
+    @Test
+    public void testLookupsByCikAndTicker() {
+        StockIndex index = new StockIndex(List.of(brkB, apple, brkA), List.of());
+
+        assertEquals(3, index.size());
+        assertEquals(apple, index.findByCik(320193L).orElseThrow());
+        // The first ticker of a CIK in ticker order
+        assertEquals(brkA, index.findByCik(1067983L).orElseThrow());
+        assertEquals(brkB, index.findByTicker("BRK-B").orElseThrow());
+        assertTrue(index.findByCik(789019L).isEmpty());
+        assertTrue(index.findByTicker("MSFT").isEmpty());
+    }
+
+    @Test
+    public void testTickersAreMatchedIgnoringCase() {
+        Stock lowerCase = Stock.builder().cik(1L).ticker("abc").build();
+        StockIndex index = new StockIndex(List.of(apple, brkB, lowerCase), List.of());
+
+        assertEquals(apple, index.findByTicker("aapl").orElseThrow());
+        assertEquals(brkB, index.findByTicker("Brk-b").orElseThrow());
+        assertEquals(lowerCase, index.findByTicker("ABC").orElseThrow());
+    }
+
+    @Test
+    public void testCusipsFromStocksTakePrecedenceOverMappings() {
+        List<CikCusipMaps> mappings = List.of(
+                new CikCusipMaps(2, 1067983L, "084670", "08467070"),
+                new CikCusipMaps(1, 1067983L, "084670", "08467010"),
+                new CikCusipMaps(3, 1067983L, "037833", "03783310"),
+                new CikCusipMaps(4, 789019L, "594918", "59491810"));
+
+        StockIndex index = new StockIndex(List.of(brkB, apple, brkA), mappings);
+
+        assertEquals(apple, index.findByCusip6("037833").orElseThrow());
+        assertEquals(apple, index.findByCusip8("03783310").orElseThrow());
+        assertEquals(brkA, index.findByCusip6("084670").orElseThrow());
+        assertEquals(brkA, index.findByCusip8("08467070").orElseThrow());
+        // Mappings of CIKs without a stock are not indexed
+        assertTrue(index.findByCusip8("59491810").isEmpty());
+    }
+}
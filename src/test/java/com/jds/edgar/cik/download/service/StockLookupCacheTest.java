@@ -0,0 +1,61 @@
+package com.jds.edgar.cik.download.service;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.LookupCacheStats;
+import com.jds.edgar.cik.download.model.Stock;
+import com.jds.edgar.cik.download.repository.StockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StockLookupCacheTest {
+
+    @Mock
+    private StockRepository stockRepository;
+
+    private StockLookupCache stockLookupCache;
+
+    @BeforeEach
+    public void setUp() {
+        stockLookupCache = new StockLookupCache(new EdgarConfig(), stockRepository);
+    }
+
+    @Test
+    public void testMissingStockIsCached() {
+        when(stockRepository.findByTicker("NEW")).thenReturn(Optional.empty());
+
+        assertTrue(stockLookupCache.findByTicker("NEW").isEmpty());
+        assertTrue(stockLookupCache.findByTicker("NEW").isEmpty());
+
+        verify(stockRepository, times(1)).findByTicker("NEW");
+        LookupCacheStats stats = stockLookupCache.getStats().get(1);
+        assertEquals("ticker", stats.getName());
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void testInvalidateReloadsCikAndTickers() {
+        Stock stock = Stock.builder().cik(320193L).ticker("AAPL").name("Apple Inc.").build();
+        when(stockRepository.findByCik(320193L)).thenReturn(Optional.of(stock));
+        when(stockRepository.findByTicker("AAPL")).thenReturn(Optional.empty()).thenReturn(Optional.of(stock));
+
+        assertEquals(stock, stockLookupCache.findByCik(320193L).orElseThrow());
+        assertTrue(stockLookupCache.findByTicker("AAPL").isEmpty());
+
+        stockLookupCache.invalidate(320193L, "AAPL");
+
+        assertEquals(stock, stockLookupCache.findByCik(320193L).orElseThrow());
+        assertEquals(stock, stockLookupCache.findByTicker("AAPL").orElseThrow());
+        verify(stockRepository, times(2)).findByCik(320193L);
+        verify(stockRepository, times(2)).findByTicker("AAPL");
+    }
+}
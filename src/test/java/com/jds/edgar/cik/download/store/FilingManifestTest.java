@@ -0,0 +1,64 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.FilingKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilingManifestTest {
+
+    private static final FilingKey FROM_INDEX = new FilingKey("SC 13G", 1000185L, "1995-12-08", "0000918851-95-000020");
+
+    @TempDir
+    Path folder;
+
+    private EdgarConfig edgarConfig;
+    private FolderFilingStore filingStore;
+
+    @BeforeEach
+    public void setUp() {
+        edgarConfig = new EdgarConfig();
+        edgarConfig.setFilingsFolder(folder.resolve("filings").toString());
+        edgarConfig.setFilingsManifest(folder.resolve("manifest.dat").toString());
+        filingStore = new FolderFilingStore(edgarConfig);
+    }
+
+    @Test
+    public void testMissingManifestIsRebuiltFromFolder() throws IOException {
+        filingStore.write(FROM_INDEX, new ByteArrayInputStream("filing".getBytes(StandardCharsets.UTF_8)));
+
+        FilingManifest manifest = new FilingManifest(edgarConfig, filingStore);
+
+        // The folder layout only keeps the last part of the accession number, both keys must match
+        assertTrue(manifest.contains(FROM_INDEX));
+        assertTrue(manifest.contains(FROM_INDEX.withAccession("000020")));
+        assertFalse(manifest.contains(FROM_INDEX.withAccession("0000918851-95-000021")));
+        manifest.close();
+    }
+
+    @Test
+    public void testAddedFilingsSurviveRestart() throws IOException {
+        FilingManifest manifest = new FilingManifest(edgarConfig, filingStore);
+        assertFalse(manifest.contains(FROM_INDEX));
+        manifest.add(FROM_INDEX);
+        manifest.close();
+
+        // Simulate a crash in the middle of an append
+        Files.write(folder.resolve("manifest.dat"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        FilingManifest reopened = new FilingManifest(edgarConfig, filingStore);
+        assertTrue(reopened.contains(FROM_INDEX));
+        assertEquals(8, Files.size(folder.resolve("manifest.dat")));
+        reopened.close();
+    }
+}
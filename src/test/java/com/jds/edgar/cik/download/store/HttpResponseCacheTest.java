@@ -0,0 +1,194 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.CachedResponse;
+import com.jds.edgar.cik.download.service.SecRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class HttpResponseCacheTest {
+
+    private static final String CLOSED_QUARTER = "https://www.sec.gov/Archives/edgar/full-index/2020/QTR1/master.idx";
+    private static final String TICKERS = "https://www.sec.gov/files/company_tickers.json";
+
+    @TempDir
+    Path folder;
+
+    private EdgarConfig edgarConfig;
+
+    @BeforeEach
+    public void setUp() {
+        edgarConfig = new EdgarConfig();
+        edgarConfig.setHttpCacheFolder(folder.toString());
+    }
+
+    @Test
+    public void testClassify() {
+        LocalDate today = LocalDate.of(2023, 5, 10);
+        assertEquals(HttpResponseCache.UrlClass.CLOSED_QUARTER_INDEX, HttpResponseCache.classify(CLOSED_QUARTER, today));
+        assertEquals(HttpResponseCache.UrlClass.CLOSED_QUARTER_INDEX,
+                HttpResponseCache.classify("https://www.sec.gov/Archives/edgar/full-index/2023/QTR1/master.idx", today));
+        assertEquals(HttpResponseCache.UrlClass.CURRENT_QUARTER_INDEX,
+                HttpResponseCache.classify("https://www.sec.gov/Archives/edgar/full-index/2023/QTR2/master.idx", today));
+        assertEquals(HttpResponseCache.UrlClass.TICKERS, HttpResponseCache.classify(TICKERS, today));
+        assertEquals(HttpResponseCache.UrlClass.COMPANY_PAGE,
+                HttpResponseCache.classify("https://www.sec.gov/cgi-bin/browse-edgar?CIK=320193", today));
+    }
+
+    @Test
+    public void testResponsesAreLoadedOnceAndStoredByContent() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(edgarConfig);
+        AtomicInteger loads = new AtomicInteger();
+        HttpResponseCache.Loader loader = outputStream -> {
+            loads.incrementAndGet();
+            outputStream.write("CIK|Company Name".getBytes(StandardCharsets.UTF_8));
+            return Map.of("Content-Encoding", "gzip");
+        };
+
+        cache.get(CLOSED_QUARTER, loader).close();
+        try (CachedResponse second = cache.get(CLOSED_QUARTER, loader)) {
+            assertEquals("CIK|Company Name", read(second));
+            assertEquals("gzip", second.getHeaders().get("Content-Encoding"));
+        }
+        cache.get(CLOSED_QUARTER.replace("QTR1", "QTR2"), loader).close();
+
+        assertEquals(2, loads.get());
+        assertEquals(1, blobCount());
+        assertEquals(16, cache.size());
+        assertFalse(cache.isCacheable("https://www.sec.gov/Archives/edgar/data/320193/0000320193-23-000006.txt"));
+    }
+
+    @Test
+    public void testExpiredResponsesAreLoadedAgain() throws IOException {
+        edgarConfig.setHttpCacheTickersTtl(0L);
+        HttpResponseCache cache = new HttpResponseCache(edgarConfig);
+        cache.put(TICKERS, new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)), Map.of());
+
+        assertTrue(cache.lookup(TICKERS).isEmpty());
+        assertTrue(cache.lookup(CLOSED_QUARTER).isEmpty());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResponsesAreEvicted() throws IOException {
+        edgarConfig.setHttpCacheMaxSize(12L);
+        HttpResponseCache cache = new HttpResponseCache(edgarConfig);
+        cache.get(CLOSED_QUARTER, body("first")).close();
+        cache.get(TICKERS, body("second")).close();
+        cache.lookup(CLOSED_QUARTER).orElseThrow().close();
+        cache.get("https://www.sec.gov/files/company_tickers_exchange.json", body("third")).close();
+
+        try (CachedResponse first = cache.lookup(CLOSED_QUARTER).orElseThrow()) {
+            assertEquals("first", read(first));
+        }
+        assertTrue(cache.lookup(TICKERS).isEmpty());
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testOfflineModeServesExpiredResponsesAfterRestart() throws IOException {
+        new HttpResponseCache(edgarConfig).get(TICKERS, body("tickers")).close();
+
+        edgarConfig.setHttpCacheTickersTtl(0L);
+        edgarConfig.setHttpCacheOffline(true);
+        HttpResponseCache offline = new HttpResponseCache(edgarConfig);
+
+        try (CachedResponse tickers = offline.get(TICKERS, body("reloaded"))) {
+            assertEquals("tickers", read(tickers));
+        }
+        assertThrows(IOException.class, () -> offline.get(CLOSED_QUARTER, body("index")));
+    }
+
+    @Test
+    public void testEvictedBodyStaysReadableUntilClosed() throws IOException {
+        edgarConfig.setHttpCacheMaxSize(6L);
+        HttpResponseCache cache = new HttpResponseCache(edgarConfig);
+        cache.get(CLOSED_QUARTER, body("first")).close();
+
+        try (CachedResponse first = cache.lookup(CLOSED_QUARTER).orElseThrow()) {
+            cache.get(TICKERS, body("second")).close();
+
+            assertTrue(cache.lookup(CLOSED_QUARTER).isEmpty());
+            assertEquals("first", read(first));
+            assertEquals(2, blobCount());
+        }
+        assertEquals(1, blobCount());
+        assertEquals(6, cache.size());
+    }
+
+    @Test
+    public void testReplacedBodyStaysReadableUntilClosed() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(edgarConfig);
+        cache.put(TICKERS, new ByteArrayInputStream("old".getBytes(StandardCharsets.UTF_8)), Map.of());
+
+        try (CachedResponse old = cache.lookup(TICKERS).orElseThrow()) {
+            cache.put(TICKERS, new ByteArrayInputStream("new".getBytes(StandardCharsets.UTF_8)), Map.of());
+
+            assertEquals("old", read(old));
+        }
+        try (CachedResponse replaced = cache.lookup(TICKERS).orElseThrow()) {
+            assertEquals("new", read(replaced));
+        }
+        assertEquals(1, blobCount());
+    }
+
+    private static String read(CachedResponse response) throws IOException {
+        return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private long blobCount() throws IOException {
+        try (Stream<Path> files = Files.walk(folder.resolve("blobs"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static HttpResponseCache.Loader body(String content) {
+        return outputStream -> {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+            return Map.of();
+        };
+    }
+
+    @Test
+    public void testRestTemplateReadsCachedResponses() throws IOException {
+        RestTemplate restTemplate = new RestTemplate();
+        SecRateLimiter secRateLimiter = mock(SecRateLimiter.class);
+        restTemplate.setInterceptors(List.of(new HttpResponseCacheInterceptor(new HttpResponseCache(edgarConfig), secRateLimiter)));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(ExpectedCount.once(), requestTo(CLOSED_QUARTER))
+                .andRespond(withSuccess("CIK|Company Name", MediaType.TEXT_PLAIN));
+        server.expect(ExpectedCount.once(), requestTo(TICKERS))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+
+        assertEquals("CIK|Company Name", restTemplate.getForObject(CLOSED_QUARTER, String.class));
+        assertEquals("CIK|Company Name", restTemplate.getForObject(CLOSED_QUARTER, String.class));
+        HttpClientErrorException throttled = assertThrows(HttpClientErrorException.class, () -> restTemplate.getForObject(TICKERS, String.class));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, throttled.getStatusCode());
+        server.verify();
+        // The second read of the index is a cache hit and is not paced
+        verify(secRateLimiter, times(2)).acquire();
+    }
+}
@@ -0,0 +1,146 @@
+package com.jds.edgar.cik.download.store;
+
+import com.jds.edgar.cik.download.config.EdgarConfig;
+import com.jds.edgar.cik.download.model.FilingKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class SegmentFilingStoreTest {
+
+    private static final FilingKey FIRST = new FilingKey("SC 13G", 1000185L, "1995-12-08", "0000918851-95-000020");
+    private static final FilingKey SECOND = new FilingKey("SC 13D", 1000254L, "1995-10-02", "0000896131-95-000043");
+
+    @TempDir
+    Path segmentsFolder;
+
+    private EdgarConfig edgarConfig;
+
+    @BeforeEach
+    public void setUp() {
+        edgarConfig = new EdgarConfig();
+        edgarConfig.setFilingsSegmentsFolder(segmentsFolder.toString());
+        edgarConfig.setFilingsSegmentSize(1024L * 1024);
+    }
+
+    @Test
+    public void testWriteAndReadBack() throws IOException {
+        SegmentFilingStore store = open();
+        store.write(FIRST, content("first filing"));
+        store.write(SECOND, content("second filing"));
+
+        assertTrue(store.exists(FIRST));
+        assertEquals("first filing", read(store, FIRST));
+        assertEquals("second filing", read(store, SECOND));
+        assertThrows(NoSuchFileException.class, () -> store.open(new FilingKey("10-Q", 100030L, "1995-11-09", "0000950152-95-002534")));
+        store.close();
+    }
+
+    @Test
+    public void testIndexIsReloadedAndRollsOverSegments() throws IOException {
+        edgarConfig.setFilingsSegmentSize(1L);
+        SegmentFilingStore store = open();
+        store.write(FIRST, content("first filing"));
+        store.write(SECOND, content("second filing"));
+        store.close();
+
+        assertTrue(Files.exists(segmentsFolder.resolve("segment-000002.dat")));
+
+        SegmentFilingStore reopened = open();
+        List<FilingKey> keys = reopened.keys().collect(Collectors.toList());
+        assertEquals(List.of(FIRST, SECOND), keys);
+        assertEquals("second filing", read(reopened, SECOND));
+        reopened.close();
+    }
+
+    @Test
+    public void testIncompleteAppendIsDiscarded() throws IOException {
+        SegmentFilingStore store = open();
+        store.write(FIRST, content("first filing"));
+        store.close();
+
+        // Simulate a crash after the data was appended but while the index line was being written
+        Files.write(segmentsFolder.resolve("segment-000001.dat"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        Files.write(segmentsFolder.resolve("segment-000001.idx"), "SC 13D|1000254|1995-10".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        SegmentFilingStore reopened = open();
+        assertFalse(reopened.exists(SECOND));
+        reopened.write(SECOND, content("second filing"));
+        assertEquals("first filing", read(reopened, FIRST));
+        assertEquals("second filing", read(reopened, SECOND));
+        reopened.close();
+    }
+
+    @Test
+    public void testSameAccessionUnderSeveralCiks() throws IOException {
+        FilingKey subject = new FilingKey("SC 13G", 1000185L, "1995-12-08", "000020");
+        FilingKey otherSubject = new FilingKey("SC 13G", 1000254L, "1995-12-08", "000020");
+        SegmentFilingStore store = open();
+        store.write(subject, content("first filing"));
+
+        assertFalse(store.exists(otherSubject));
+        store.write(otherSubject, content("second filing"));
+        assertEquals("first filing", read(store, subject));
+        assertEquals("second filing", read(store, otherSubject));
+        store.close();
+    }
+
+    @Test
+    public void testCorruptFilingDoesNotLeakFileHandles() throws IOException {
+        Path fileDescriptors = Path.of("/proc/self/fd");
+        assumeTrue(Files.isDirectory(fileDescriptors));
+        SegmentFilingStore store = open();
+        store.write(FIRST, content("first filing"));
+        // Overwrite the gzip magic number of the member
+        try (FileChannel channel = FileChannel.open(segmentsFolder.resolve("segment-000001.dat"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0}), 0);
+        }
+
+        long openBefore = countFiles(fileDescriptors);
+        for (int i = 0; i < 100; i++) {
+            assertThrows(ZipException.class, () -> store.open(FIRST));
+        }
+        assertTrue(countFiles(fileDescriptors) < openBefore + 10);
+        store.close();
+    }
+
+    private static long countFiles(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.count();
+        }
+    }
+
+    private SegmentFilingStore open() throws IOException {
+        SegmentFilingStore store = new SegmentFilingStore(edgarConfig);
+        store.init();
+        return store;
+    }
+
+    private static InputStream content(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(FilingStore store, FilingKey key) throws IOException {
+        try (InputStream inputStream = store.open(key)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}